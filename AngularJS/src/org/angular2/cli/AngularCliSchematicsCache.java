@@ -0,0 +1,161 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.cli;
+
+import com.google.gson.GsonBuilder;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.angular2.lang.Angular2LangUtil.ANGULAR_CLI_PACKAGE;
+
+/**
+ * Persistent cache of the schematics loaded from Angular CLI. Entries are stored in the IDE system directory
+ * and are keyed by a hash of the Angular CLI workspace config, the {@code @angular/cli} package.json and package.json
+ * files of all installed schematics collections, so they survive IDE restarts and are reused until a relevant package
+ * is installed, updated or removed.
+ */
+final class AngularCliSchematicsCache {
+
+  private static final Logger LOG = Logger.getInstance(AngularCliSchematicsCache.class);
+
+  @NonNls private static final String CACHE_DIR = "angular-cli-schematics";
+  @NonNls private static final String NODE_MODULES = "node_modules";
+  @NonNls private static final String PACKAGE_JSON = "package.json";
+  @NonNls private static final String SCHEMATICS_PROP = "\"schematics\"";
+  private static final int CACHE_VERSION = 1;
+  private static final int MAX_ENTRIES = 50;
+
+  private AngularCliSchematicsCache() {
+  }
+
+  /**
+   * @return cache key for the schematics of the Angular CLI workspace, or {@code null} if Angular CLI is not installed there
+   */
+  @Nullable
+  static String computeKey(@NotNull VirtualFile cliFolder, boolean includeHidden) {
+    File nodeModules = new File(cliFolder.getPath(), NODE_MODULES);
+    File cliPackageJson = new File(new File(nodeModules, ANGULAR_CLI_PACKAGE), PACKAGE_JSON);
+    if (!cliPackageJson.isFile()) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      update(digest, CACHE_VERSION + ":" + includeHidden + ":" + cliFolder.getPath());
+      VirtualFile cliJson = AngularCliUtil.findCliJson(cliFolder);
+      if (cliJson != null) {
+        // default collection is configured in the workspace config
+        digest.update(FileUtil.loadFileBytes(new File(cliJson.getPath())));
+      }
+      digest.update(FileUtil.loadFileBytes(cliPackageJson));
+      // the same packages, which are checked for schematics collections by schematicsInfoProvider.js
+      for (File dir : listSorted(nodeModules)) {
+        if (dir.getName().startsWith("@")) {
+          for (File subDir : listSorted(dir)) {
+            updateWithCollection(digest, subDir);
+          }
+        }
+        else {
+          updateWithCollection(digest, dir);
+        }
+      }
+      return StringUtil.toHexString(digest.digest());
+    }
+    catch (IOException | NoSuchAlgorithmException e) {
+      LOG.info("Failed to compute schematics cache key for " + cliFolder.getPath(), e);
+      return null;
+    }
+  }
+
+  @Nullable
+  static List<Schematic> load(@NotNull String key) {
+    File file = getCacheFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      List<Schematic> result = SchematicsJsonParser.parse(FileUtil.loadFile(file, CharsetToolkit.UTF8_CHARSET));
+      if (result != null) {
+        // keep recently used entries from being evicted
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+      }
+      return result;
+    }
+    catch (Exception e) {
+      LOG.info("Failed to read cached schematics from " + file.getPath(), e);
+      FileUtil.delete(file);
+      return null;
+    }
+  }
+
+  static void store(@NotNull String key, @NotNull List<Schematic> schematics) {
+    File file = getCacheFile(key);
+    try {
+      File tempFile = new File(file.getPath() + ".tmp");
+      FileUtil.writeToFile(tempFile, new GsonBuilder().create().toJson(schematics).getBytes(StandardCharsets.UTF_8));
+      FileUtil.rename(tempFile, file);
+    }
+    catch (IOException e) {
+      LOG.info("Failed to store schematics cache to " + file.getPath(), e);
+      return;
+    }
+    evictOldEntries(file.getParentFile());
+  }
+
+  private static void updateWithCollection(@NotNull MessageDigest digest, @NotNull File packageDir) throws IOException {
+    File packageJson = new File(packageDir, PACKAGE_JSON);
+    if (!packageJson.isFile()) {
+      return;
+    }
+    byte[] content = FileUtil.loadFileBytes(packageJson);
+    if (new String(content, StandardCharsets.UTF_8).contains(SCHEMATICS_PROP)) {
+      update(digest, packageDir.getName());
+      digest.update(content);
+    }
+  }
+
+  private static void update(@NotNull MessageDigest digest, @NotNull String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @NotNull
+  private static File[] listSorted(@NotNull File dir) {
+    File[] files = dir.listFiles(File::isDirectory);
+    if (files == null) {
+      return new File[0];
+    }
+    Arrays.sort(files, Comparator.comparing(File::getName));
+    return files;
+  }
+
+  @NotNull
+  private static File getCacheFile(@NotNull String key) {
+    return new File(new File(PathManager.getSystemPath(), CACHE_DIR), key + ".json");
+  }
+
+  private static void evictOldEntries(@NotNull File cacheDir) {
+    File[] entries = cacheDir.listFiles((dir, name) -> name.endsWith(".json"));
+    if (entries == null || entries.length <= MAX_ENTRIES) {
+      return;
+    }
+    Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < entries.length - MAX_ENTRIES; i++) {
+      FileUtil.delete(entries[i]);
+    }
+  }
+}
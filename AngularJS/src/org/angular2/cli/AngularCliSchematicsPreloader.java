@@ -0,0 +1,43 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.cli;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Loads schematics of Angular CLI workspaces located in the project content roots in the background,
+ * so that they are ready when Generate action is invoked. Workspaces are loaded in parallel.
+ */
+public class AngularCliSchematicsPreloader implements StartupActivity.DumbAware {
+
+  @Override
+  public void runActivity(@NotNull Project project) {
+    if (ApplicationManager.getApplication().isUnitTestMode()) {
+      return;
+    }
+    Set<VirtualFile> cliFolders = new LinkedHashSet<>();
+    ReadAction.run(() -> {
+      for (VirtualFile root : ProjectRootManager.getInstance(project).getContentRoots()) {
+        if (AngularCliUtil.findCliJson(root) != null) {
+          cliFolders.add(root);
+        }
+      }
+    });
+    for (VirtualFile cliFolder : cliFolders) {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        if (!project.isDisposed() && cliFolder.isValid()
+            && ReadAction.compute(() -> AngularCliUtil.hasAngularCLIPackageInstalled(project, cliFolder))) {
+          AngularCliSchematicsRegistryService.getInstance().getSchematics(project, cliFolder, false, false);
+        }
+      });
+    }
+  }
+}
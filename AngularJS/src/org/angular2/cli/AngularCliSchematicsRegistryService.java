@@ -55,6 +55,8 @@ public abstract class AngularCliSchematicsRegistryService {
   /**
    * Loads schematics available in a particular location. The results are cached
    * and recalculated on every change of package.json in any node_modules directory.
+   * Schematics are also persisted on disk, keyed by the contents of Angular CLI and
+   * schematics collections package.json files, so they are reused after IDE restart.
    */
   @NotNull
   public abstract Collection<Schematic> getSchematics(@NotNull Project project,
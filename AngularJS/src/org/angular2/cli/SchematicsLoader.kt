@@ -21,6 +21,10 @@ private var myLogErrors: ThreadLocal<Boolean> = ThreadLocal.withInitial { true }
 private val LOG: Logger = Logger.getInstance("#org.angular2.cli.SchematicsLoader")
 
 fun doLoad(project: Project, cli: VirtualFile, includeHidden: Boolean, logErrors: Boolean): List<Schematic> {
+  val cacheKey = AngularCliSchematicsCache.computeKey(cli, includeHidden)
+  if (cacheKey != null) {
+    AngularCliSchematicsCache.load(cacheKey)?.let { return it }
+  }
   myLogErrors.set(logErrors)
   val interpreter = NodeJsInterpreterManager.getInstance(project).interpreter ?: return emptyList()
   val configurator: NodeCommandLineConfigurator
@@ -57,10 +61,15 @@ fun doLoad(project: Project, cli: VirtualFile, includeHidden: Boolean, logErrors
   }
 
   if (parse.isEmpty()) {
-    parse = BlueprintParser().parse(DEFAULT_OUTPUT)
+    return BlueprintParser().parse(DEFAULT_OUTPUT).sortedBy { it.name }
   }
 
-  return parse.sortedBy { it.name }
+  val result = parse.sortedBy { it.name }
+  // do not persist failures, so that they are retried after restart
+  if (cacheKey != null && result.none { it.error != null }) {
+    AngularCliSchematicsCache.store(cacheKey, result)
+  }
+  return result
 }
 
 private fun loadSchematicsInfoJson(configurator: NodeCommandLineConfigurator,
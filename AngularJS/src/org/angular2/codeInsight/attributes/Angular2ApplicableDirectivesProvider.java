@@ -2,7 +2,8 @@
 package org.angular2.codeInsight.attributes;
 
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.NotNullLazyValue;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.containers.ContainerUtil;
 import org.angular2.entities.Angular2Directive;
@@ -12,14 +13,19 @@ import org.angular2.lang.selector.Angular2SelectorMatcher;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
+import static com.intellij.openapi.util.Pair.pair;
 import static org.angular2.codeInsight.tags.Angular2TagDescriptorsProvider.NG_TEMPLATE;
 import static org.angular2.codeInsight.template.Angular2TemplateElementsScopeProvider.isTemplateTag;
-import static org.angular2.entities.Angular2EntitiesProvider.findElementDirectivesCandidates;
+import static org.angular2.entities.Angular2EntitiesProvider.getAllElementDirectives;
 
 public class Angular2ApplicableDirectivesProvider {
 
-  private final NotNullLazyValue<List<Angular2Directive>> myDirectiveCandidates;
+  private static final Key<Pair<Map<String, List<Angular2Directive>>, ConcurrentMap<String, CandidatesMatcher>>> MATCHERS_KEY =
+    new Key<>("angular2.applicableDirectives.matchers");
+
+  private final List<Angular2Directive> myDirectiveCandidates;
   private final List<Angular2Directive> myMatchedDirectives;
 
   public Angular2ApplicableDirectivesProvider(@NotNull XmlTag xmlTag) {
@@ -40,19 +46,12 @@ public class Angular2ApplicableDirectivesProvider {
                                                @NotNull String tagName,
                                                boolean onlyMatchingTagName,
                                                @NotNull Angular2DirectiveSimpleSelector cssSelector) {
-    Set<Angular2Directive> directiveCandidates = new HashSet<>(
-      findElementDirectivesCandidates(project, tagName));
-    if (!onlyMatchingTagName) {
-      directiveCandidates.addAll(findElementDirectivesCandidates(project, ""));
-    }
-
-    Angular2SelectorMatcher<Angular2Directive> matcher = new Angular2SelectorMatcher<>();
-    directiveCandidates.forEach(d -> matcher.addSelectables(d.getSelector().getSimpleSelectors(), d));
-    myDirectiveCandidates = NotNullLazyValue.createValue(() -> new ArrayList<>(directiveCandidates));
+    CandidatesMatcher candidatesMatcher = getCandidatesMatcher(project, tagName, onlyMatchingTagName);
+    myDirectiveCandidates = candidatesMatcher.candidates;
 
     boolean isTemplateTag = isTemplateTag(tagName);
     Set<Angular2Directive> matchedDirectives = new HashSet<>();
-    matcher.match(cssSelector, (selector, directive) -> {
+    candidatesMatcher.matcher.match(cssSelector, (selector, directive) -> {
       if (directive.isRegularDirective() || isTemplateTag) {
         matchedDirectives.add(directive);
       }
@@ -62,10 +61,42 @@ public class Angular2ApplicableDirectivesProvider {
   }
 
   public List<Angular2Directive> getCandidates() {
-    return myDirectiveCandidates.getValue();
+    return myDirectiveCandidates;
   }
 
   public List<Angular2Directive> getMatched() {
     return myMatchedDirectives;
   }
+
+  /**
+   * Matchers are built once per tag name and shared until the project-wide map of element directives changes.
+   * Matching doesn't depend on declarations scope, so the same matcher serves all templates.
+   */
+  @NotNull
+  private static CandidatesMatcher getCandidatesMatcher(@NotNull Project project, @NotNull String tagName, boolean onlyMatchingTagName) {
+    Map<String, List<Angular2Directive>> elementDirectives = getAllElementDirectives(project);
+    Pair<Map<String, List<Angular2Directive>>, ConcurrentMap<String, CandidatesMatcher>> matchers = project.getUserData(MATCHERS_KEY);
+    if (matchers == null || matchers.first != elementDirectives) {
+      matchers = pair(elementDirectives, ContainerUtil.newConcurrentMap());
+      project.putUserData(MATCHERS_KEY, matchers);
+    }
+    // attribute directives are stored under an empty element name
+    return matchers.second.computeIfAbsent(onlyMatchingTagName ? tagName : tagName + "\n*", key -> {
+      Set<Angular2Directive> candidates = new LinkedHashSet<>(elementDirectives.getOrDefault(tagName, Collections.emptyList()));
+      if (!onlyMatchingTagName) {
+        candidates.addAll(elementDirectives.getOrDefault("", Collections.emptyList()));
+      }
+      return new CandidatesMatcher(candidates);
+    });
+  }
+
+  private static class CandidatesMatcher {
+    final List<Angular2Directive> candidates;
+    final Angular2SelectorMatcher<Angular2Directive> matcher = new Angular2SelectorMatcher<>();
+
+    CandidatesMatcher(@NotNull Collection<Angular2Directive> candidates) {
+      this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+      candidates.forEach(d -> matcher.addSelectables(d.getSelector().getSimpleSelectors(), d));
+    }
+  }
 }
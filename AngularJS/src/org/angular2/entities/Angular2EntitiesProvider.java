@@ -17,13 +17,11 @@ import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
 import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.ObjectUtils;
 import com.intellij.util.Processor;
 import com.intellij.util.SmartList;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
-import one.util.streamex.StreamEx;
 import org.angular2.entities.metadata.psi.*;
 import org.angular2.entities.source.Angular2SourceComponent;
 import org.angular2.entities.source.Angular2SourceDirective;
@@ -37,13 +35,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 
 import static com.intellij.psi.util.CachedValueProvider.Result.create;
-import static java.util.stream.Collectors.toMap;
 import static org.angular2.Angular2DecoratorUtil.*;
 import static org.angular2.entities.Angular2EntityUtils.*;
-import static org.angular2.index.Angular2IndexingHandler.NG_MODULE_INDEX_NAME;
 
 public class Angular2EntitiesProvider {
 
@@ -152,29 +147,12 @@ public class Angular2EntitiesProvider {
 
   @NotNull
   public static Map<String, List<Angular2Directive>> getAllElementDirectives(@NotNull Project project) {
-    return CachedValuesManager.getManager(project).getCachedValue(project, () -> create(
-      StreamEx.of(AngularIndexUtil.getAllKeys(Angular2SourceDirectiveIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2MetadataDirectiveIndex.KEY, project))
-        .map(name -> isElementDirectiveIndexName(name) ? getElementName(name) : null)
-        .nonNull()
-        .distinct()
-        .collect(toMap(Function.identity(),
-                       name -> findDirectivesCandidates(
-                         project, getElementDirectiveIndexName(name)))),
-      PsiModificationTracker.MODIFICATION_COUNT)
-    );
+    return Angular2EntitiesRegistry.getInstance(project).getAllEntities().getElementDirectives();
   }
 
   @NotNull
   public static Map<String, List<Angular2Pipe>> getAllPipes(@NotNull Project project) {
-    return CachedValuesManager.getManager(project).getCachedValue(project, () -> create(
-      StreamEx.of(AngularIndexUtil.getAllKeys(Angular2SourcePipeIndex.KEY, project))
-        .append(AngularIndexUtil.getAllKeys(Angular2MetadataPipeIndex.KEY, project))
-        .distinct()
-        .collect(toMap(Function.identity(),
-                       name -> findPipes(project, name))),
-      PsiModificationTracker.MODIFICATION_COUNT)
-    );
+    return Angular2EntitiesRegistry.getInstance(project).getAllEntities().getPipes();
   }
 
   public static boolean isPipeTransformMethod(@Nullable PsiElement element) {
@@ -184,46 +162,15 @@ public class Angular2EntitiesProvider {
   }
 
   public static MultiMap<Angular2Declaration, Angular2Module> getExportedDeclarationToModuleMap(@NotNull Project project) {
-    return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
-      MultiMap<Angular2Declaration, Angular2Module> result = new MultiMap<>();
-      getAllModules(project).forEach(
-        module -> module.getAllExportedDeclarations().forEach(
-          decl -> result.putValue(decl, module)));
-      return create(result, PsiModificationTracker.MODIFICATION_COUNT);
-    });
+    return Angular2EntitiesRegistry.getInstance(project).getExportedDeclarationToModuleMap();
   }
 
   public static MultiMap<Angular2Declaration, Angular2Module> getDeclarationToModuleMap(@NotNull Project project) {
-    return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
-      MultiMap<Angular2Declaration, Angular2Module> result = new MultiMap<>();
-      getAllModules(project).forEach(
-        module -> module.getDeclarations().forEach(
-          decl -> result.putValue(decl, module)));
-      return create(result, PsiModificationTracker.MODIFICATION_COUNT);
-    });
+    return Angular2EntitiesRegistry.getInstance(project).getDeclarationToModuleMap();
   }
 
   public static List<Angular2Module> getAllModules(@NotNull Project project) {
-    return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
-      List<Angular2Module> result = new ArrayList<>();
-      StubIndex.getInstance().processElements(Angular2SourceModuleIndex.KEY, NG_MODULE_INDEX_NAME,
-                                              project, GlobalSearchScope.allScope(project),
-                                              JSImplicitElementProvider.class, (module) -> {
-          if (module.isValid()) {
-            ContainerUtil.addIfNotNull(result, getModule(module));
-          }
-          return true;
-        });
-      StubIndex.getInstance().processElements(Angular2MetadataModuleIndex.KEY, NG_MODULE_INDEX_NAME,
-                                              project, GlobalSearchScope.allScope(project),
-                                              Angular2MetadataModule.class, (module) -> {
-          if (module.isValid()) {
-            result.add(module);
-          }
-          return true;
-        });
-      return create(result, PsiModificationTracker.MODIFICATION_COUNT);
-    });
+    return Angular2EntitiesRegistry.getInstance(project).getAllEntities().getModules();
   }
 
   @NotNull
@@ -257,11 +204,11 @@ public class Angular2EntitiesProvider {
     return result;
   }
 
-  private static <T extends Angular2MetadataEntity> void processMetadataEntities(@NotNull Project project,
-                                                                                 @NotNull String name,
-                                                                                 @NotNull Class<T> entityClass,
-                                                                                 @NotNull StubIndexKey<String, T> key,
-                                                                                 @NotNull Processor<? super T> processor) {
+  static <T extends Angular2MetadataEntity> void processMetadataEntities(@NotNull Project project,
+                                                                         @NotNull String name,
+                                                                         @NotNull Class<T> entityClass,
+                                                                         @NotNull StubIndexKey<String, T> key,
+                                                                         @NotNull Processor<? super T> processor) {
     StubIndex.getInstance().processElements(key, name, project, GlobalSearchScope.allScope(project), entityClass, el -> {
       if (el.isValid()) {
         return processor.process(el);
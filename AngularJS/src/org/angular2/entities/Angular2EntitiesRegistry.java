@@ -0,0 +1,527 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.entities;
+
+import com.intellij.lang.javascript.psi.JSFile;
+import com.intellij.lang.javascript.psi.JSImplicitElementProvider;
+import com.intellij.lang.javascript.psi.ecma6.ES6Decorator;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptClass;
+import com.intellij.lang.javascript.psi.stubs.JSElementIndexingData;
+import com.intellij.lang.javascript.psi.stubs.JSImplicitElement;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.psi.stubs.StubTree;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.SmartList;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.containers.MultiMap;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.angular2.entities.metadata.psi.Angular2MetadataDirectiveBase;
+import org.angular2.entities.metadata.psi.Angular2MetadataModule;
+import org.angular2.entities.metadata.psi.Angular2MetadataPipe;
+import org.angular2.index.*;
+import org.angularjs.index.AngularIndexUtil;
+import org.angularjs.index.AngularProjectFilesListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.intellij.psi.util.CachedValueProvider.Result.create;
+import static org.angular2.entities.Angular2EntityUtils.getElementName;
+import static org.angular2.entities.Angular2EntityUtils.isElementDirectiveIndexName;
+import static org.angular2.entities.metadata.Angular2MetadataFileType.METADATA_SUFFIX;
+import static org.angular2.index.Angular2IndexingHandler.NG_MODULE_INDEX_NAME;
+
+/**
+ * Keeps project-wide maps of Angular entities up to date without rebuilding them on every PSI modification.
+ * <p>
+ * Entities from {@code .metadata.json} files of libraries are collected at once and recalculated only when metadata files
+ * or project roots change. Entities from source files are collected per file; a file is rescanned only after it has been
+ * changed, and the merged maps are rebuilt only if the set of entities, their names, class names or selectors in a file
+ * have actually changed. Creation or deletion of directories in the project content as well as root changes cause
+ * the full rescan of the source files, which runs outside of the lock.
+ */
+public class Angular2EntitiesRegistry {
+
+  private final Project myProject;
+  private final SimpleModificationTracker myLibraryTracker = new SimpleModificationTracker();
+  // incremented when source files must be rescanned
+  private final SimpleModificationTracker mySourceFilesTracker = new SimpleModificationTracker();
+  // changed source files with their change stamps, a file stays dirty until the entities computed for its last change are stored
+  private final Map<VirtualFile, Long> myDirtySourceFiles = ContainerUtil.newConcurrentMap();
+  private final AtomicLong myChangeStamp = new AtomicLong();
+
+  private final Object myLock = new Object();
+  // guarded by myLock
+  @Nullable private Map<VirtualFile, Entities> mySourceFileEntities;
+  private long mySourceFileEntitiesModificationCount = -1;
+  @Nullable private Entities mySourceEntities;
+  @Nullable private Entities myLibraryEntitiesUsed;
+  @Nullable private Entities mySourceEntitiesUsed;
+  @Nullable private Entities myAllEntities;
+
+  private final DeclarationToModuleMap myDeclarationToModuleMap =
+    new DeclarationToModuleMap(Angular2Module::getDeclarations, Collections::singleton);
+  private final DeclarationToModuleMap myExportedDeclarationToModuleMap =
+    new DeclarationToModuleMap(Angular2Module::getAllExportedDeclarations, Angular2EntitiesRegistry::getExportedModules);
+
+  public Angular2EntitiesRegistry(@NotNull Project project) {
+    myProject = project;
+    new AngularProjectFilesListener() {
+      @Override
+      protected void fileChanged(@NotNull VirtualFile file) {
+        Angular2EntitiesRegistry.this.fileChanged(file);
+      }
+
+      @Override
+      protected void invalidateAll() {
+        Angular2EntitiesRegistry.this.invalidateAll();
+      }
+    }.subscribe(project);
+  }
+
+  public static Angular2EntitiesRegistry getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, Angular2EntitiesRegistry.class);
+  }
+
+  @NotNull
+  Entities getAllEntities() {
+    Entities library = CachedValuesManager.getManager(myProject).getCachedValue(
+      myProject, () -> create(computeLibraryEntities(myProject), myLibraryTracker));
+    Entities source = getSourceEntities();
+    synchronized (myLock) {
+      if (myAllEntities == null || myLibraryEntitiesUsed != library || mySourceEntitiesUsed != source) {
+        myAllEntities = Entities.merge(Arrays.asList(source, library));
+        myLibraryEntitiesUsed = library;
+        mySourceEntitiesUsed = source;
+      }
+      return myAllEntities;
+    }
+  }
+
+  @NotNull
+  MultiMap<Angular2Declaration, Angular2Module> getDeclarationToModuleMap() {
+    return myDeclarationToModuleMap.get();
+  }
+
+  @NotNull
+  MultiMap<Angular2Declaration, Angular2Module> getExportedDeclarationToModuleMap() {
+    return myExportedDeclarationToModuleMap.get();
+  }
+
+  @NotNull
+  private Entities getSourceEntities() {
+    long modificationCount = mySourceFilesTracker.getModificationCount();
+    boolean rescan;
+    synchronized (myLock) {
+      rescan = mySourceFileEntities == null || mySourceFileEntitiesModificationCount < modificationCount;
+    }
+    if (rescan) {
+      // files changed during the scan stay dirty and are rescanned once more
+      Map<VirtualFile, Long> dirtyFiles = new THashMap<>(myDirtySourceFiles);
+      Map<VirtualFile, Entities> fileEntities = new THashMap<>();
+      for (PsiFile file : findSourceEntityFiles(myProject)) {
+        VirtualFile virtualFile = file.getViewProvider().getVirtualFile();
+        if (!fileEntities.containsKey(virtualFile)) {
+          Entities entities = computeFileEntities(file);
+          if (!entities.isEmpty()) {
+            fileEntities.put(virtualFile, entities);
+          }
+        }
+      }
+      synchronized (myLock) {
+        if (mySourceFileEntitiesModificationCount < modificationCount) {
+          mySourceFileEntities = fileEntities;
+          mySourceFileEntitiesModificationCount = modificationCount;
+          mySourceEntities = null;
+          dirtyFiles.forEach(myDirtySourceFiles::remove);
+        }
+      }
+    }
+
+    // computed outside of the lock; if it is canceled, the files stay dirty
+    Map<VirtualFile, Long> dirtyFiles = new THashMap<>(myDirtySourceFiles);
+    Map<VirtualFile, Entities> dirtyFileEntities = new THashMap<>();
+    Set<VirtualFile> dirtyScriptFiles = new THashSet<>();
+    if (!dirtyFiles.isEmpty()) {
+      GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+      PsiManager psiManager = PsiManager.getInstance(myProject);
+      for (VirtualFile virtualFile : dirtyFiles.keySet()) {
+        PsiFile file = virtualFile.isValid() && scope.contains(virtualFile) ? psiManager.findFile(virtualFile) : null;
+        dirtyFileEntities.put(virtualFile, file != null ? computeFileEntities(file) : Entities.EMPTY);
+        if (file instanceof JSFile) {
+          dirtyScriptFiles.add(virtualFile);
+        }
+      }
+    }
+
+    synchronized (myLock) {
+      assert mySourceFileEntities != null;
+      for (Map.Entry<VirtualFile, Entities> entry : dirtyFileEntities.entrySet()) {
+        VirtualFile virtualFile = entry.getKey();
+        // the file may have been changed again or stored by another thread meanwhile
+        if (!myDirtySourceFiles.remove(virtualFile, dirtyFiles.get(virtualFile))) {
+          continue;
+        }
+        Entities entities = entry.getValue();
+        Entities previous = entities.isEmpty() ? mySourceFileEntities.remove(virtualFile)
+                                               : mySourceFileEntities.put(virtualFile, entities);
+        if (!entities.equals(previous != null ? previous : Entities.EMPTY)) {
+          mySourceEntities = null;
+        }
+        else if (dirtyScriptFiles.contains(virtualFile)) {
+          sourceFileChanged(virtualFile, entities);
+        }
+      }
+      if (mySourceEntities == null) {
+        mySourceEntities = Entities.merge(mySourceFileEntities.values());
+      }
+      return mySourceEntities;
+    }
+  }
+
+  /**
+   * Called for a script file, whose entities haven't changed. Declarations and exports of modules in this file
+   * may have changed; a file without entities may define constants used in modules anywhere.
+   */
+  private void sourceFileChanged(@NotNull VirtualFile file, @NotNull Entities entities) {
+    if (entities.isEmpty()) {
+      myDeclarationToModuleMap.invalidate();
+      myExportedDeclarationToModuleMap.invalidate();
+    }
+    else if (!entities.myModules.isEmpty()) {
+      myDeclarationToModuleMap.moduleFileChanged(file);
+      myExportedDeclarationToModuleMap.moduleFileChanged(file);
+    }
+  }
+
+  private void fileChanged(@NotNull VirtualFile file) {
+    if (StringUtil.endsWith(file.getNameSequence(), METADATA_SUFFIX)) {
+      myLibraryTracker.incModificationCount();
+      return;
+    }
+    myDirtySourceFiles.put(file, myChangeStamp.incrementAndGet());
+  }
+
+  private void invalidateAll() {
+    myLibraryTracker.incModificationCount();
+    mySourceFilesTracker.incModificationCount();
+  }
+
+  @NotNull
+  private static Set<PsiFile> findSourceEntityFiles(@NotNull Project project) {
+    Set<PsiFile> result = new THashSet<>();
+    for (StubIndexKey<String, JSImplicitElementProvider> key : Arrays.asList(
+      Angular2SourceDirectiveIndex.KEY, Angular2SourcePipeIndex.KEY, Angular2SourceModuleIndex.KEY)) {
+      for (String name : AngularIndexUtil.getAllKeys(key, project)) {
+        StubIndex.getInstance().processElements(key, name, project, GlobalSearchScope.allScope(project),
+                                                JSImplicitElementProvider.class, provider -> {
+            if (provider.isValid()) {
+              result.add(provider.getContainingFile());
+            }
+            return true;
+          });
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static Entities computeFileEntities(@NotNull PsiFile file) {
+    if (!(file instanceof JSFile)) {
+      return Entities.EMPTY;
+    }
+    Entities result = new Entities();
+    for (ES6Decorator decorator : getDecorators(file)) {
+      JSElementIndexingData indexingData = decorator.getIndexingData();
+      Collection<JSImplicitElement> elements = indexingData != null ? indexingData.getImplicitElements() : null;
+      if (elements == null) {
+        continue;
+      }
+      TypeScriptClass entityClass = PsiTreeUtil.getContextOfType(decorator, TypeScriptClass.class);
+      result.myClassNames.add(entityClass != null ? entityClass.getName() : null);
+      for (JSImplicitElement element : elements) {
+        if (Angular2IndexingHandler.isDirective(element)) {
+          Angular2Directive directive = Angular2EntitiesProvider.getDirective(element);
+          if (directive != null) {
+            result.mySelectors.add(directive.getSelector().getText());
+            for (String indexName : Angular2IndexingHandler.getDirectiveIndexNames(element)) {
+              if (isElementDirectiveIndexName(indexName)) {
+                result.myElementDirectives.putValue(getElementName(indexName), directive);
+              }
+            }
+          }
+        }
+        else if (Angular2IndexingHandler.isPipe(element)) {
+          Angular2Pipe pipe = Angular2EntitiesProvider.getPipe(element);
+          if (pipe != null) {
+            result.myPipes.putValue(element.getName(), pipe);
+          }
+        }
+        else if (Angular2IndexingHandler.isModule(element)) {
+          ContainerUtil.addIfNotNull(result.myModules, Angular2EntitiesProvider.getModule(element));
+        }
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static Collection<ES6Decorator> getDecorators(@NotNull PsiFile file) {
+    StubTree stubTree = file instanceof PsiFileImpl ? ((PsiFileImpl)file).getStubTree() : null;
+    if (stubTree == null) {
+      return PsiTreeUtil.findChildrenOfType(file, ES6Decorator.class);
+    }
+    List<ES6Decorator> result = new ArrayList<>();
+    for (StubElement<?> stub : stubTree.getPlainList()) {
+      PsiElement psi = stub.getPsi();
+      if (psi instanceof ES6Decorator) {
+        result.add((ES6Decorator)psi);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static Entities computeLibraryEntities(@NotNull Project project) {
+    Entities result = new Entities();
+    for (String indexName : AngularIndexUtil.getAllKeys(Angular2MetadataDirectiveIndex.KEY, project)) {
+      if (isElementDirectiveIndexName(indexName)) {
+        String elementName = getElementName(indexName);
+        Angular2EntitiesProvider.processMetadataEntities(
+          project, indexName, Angular2MetadataDirectiveBase.class, Angular2MetadataDirectiveIndex.KEY, directive -> {
+            result.myElementDirectives.putValue(elementName, directive);
+            return true;
+          });
+      }
+    }
+    for (String name : AngularIndexUtil.getAllKeys(Angular2MetadataPipeIndex.KEY, project)) {
+      Angular2EntitiesProvider.processMetadataEntities(
+        project, name, Angular2MetadataPipe.class, Angular2MetadataPipeIndex.KEY, pipe -> {
+          result.myPipes.putValue(name, pipe);
+          return true;
+        });
+    }
+    Angular2EntitiesProvider.processMetadataEntities(
+      project, NG_MODULE_INDEX_NAME, Angular2MetadataModule.class, Angular2MetadataModuleIndex.KEY, module -> {
+        result.myModules.add(module);
+        return true;
+      });
+    return result;
+  }
+
+  static final class Entities {
+
+    static final Entities EMPTY = new Entities();
+
+    private final MultiMap<String, Angular2Directive> myElementDirectives = MultiMap.createLinked();
+    private final MultiMap<String, Angular2Pipe> myPipes = MultiMap.createLinked();
+    private final List<Angular2Module> myModules = new ArrayList<>();
+    // selectors of directives declared in a file, compiled selector matchers must be rebuilt if they change
+    private final List<String> mySelectors = new SmartList<>();
+    // names of entity classes in a file, module declarations refer to entities by them
+    private final List<String> myClassNames = new SmartList<>();
+
+    private volatile Map<String, List<Angular2Directive>> myElementDirectivesMap;
+    private volatile Map<String, List<Angular2Pipe>> myPipesMap;
+
+    @NotNull
+    Map<String, List<Angular2Directive>> getElementDirectives() {
+      Map<String, List<Angular2Directive>> result = myElementDirectivesMap;
+      if (result == null) {
+        myElementDirectivesMap = result = toMap(myElementDirectives);
+      }
+      return result;
+    }
+
+    @NotNull
+    Map<String, List<Angular2Pipe>> getPipes() {
+      Map<String, List<Angular2Pipe>> result = myPipesMap;
+      if (result == null) {
+        myPipesMap = result = toMap(myPipes);
+      }
+      return result;
+    }
+
+    @NotNull
+    List<Angular2Module> getModules() {
+      return Collections.unmodifiableList(myModules);
+    }
+
+    boolean isEmpty() {
+      return myElementDirectives.isEmpty() && myPipes.isEmpty() && myModules.isEmpty();
+    }
+
+    @NotNull
+    static Entities merge(@NotNull Collection<Entities> parts) {
+      Entities result = new Entities();
+      for (Entities part : parts) {
+        result.myElementDirectives.putAllValues(part.myElementDirectives);
+        result.myPipes.putAllValues(part.myPipes);
+        result.myModules.addAll(part.myModules);
+      }
+      return result;
+    }
+
+    @NotNull
+    private static <T> Map<String, List<T>> toMap(@NotNull MultiMap<String, T> multiMap) {
+      Map<String, List<T>> result = new THashMap<>(multiMap.size());
+      for (Map.Entry<String, Collection<T>> entry : multiMap.entrySet()) {
+        result.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+      }
+      return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Entities entities = (Entities)o;
+      return myElementDirectives.equals(entities.myElementDirectives)
+             && myPipes.equals(entities.myPipes)
+             && myModules.equals(entities.myModules)
+             && mySelectors.equals(entities.mySelectors)
+             && myClassNames.equals(entities.myClassNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myElementDirectives, myPipes, myModules, mySelectors, myClassNames);
+    }
+  }
+
+  @NotNull
+  private static Set<Angular2Module> getExportedModules(@NotNull Angular2Module module) {
+    Set<Angular2Module> result = new THashSet<>();
+    Deque<Angular2Module> queue = new ArrayDeque<>();
+    queue.add(module);
+    while (!queue.isEmpty()) {
+      Angular2Module current = queue.poll();
+      if (result.add(current)) {
+        for (Angular2Entity export : current.getExports()) {
+          if (export instanceof Angular2Module) {
+            queue.add((Angular2Module)export);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static VirtualFile getModuleFile(@NotNull Angular2Module module) {
+    PsiFile file = module.getSourceElement().getContainingFile();
+    return file != null ? file.getViewProvider().getVirtualFile() : null;
+  }
+
+  /**
+   * Declaration to module map, which is updated per module. Declarations of a module are recomputed only if the file
+   * of the module or of a module it depends on has changed, or if the set of entities has changed; other changes of
+   * script files without entities cause the full rebuild, since module declarations may refer to constants from them.
+   */
+  private final class DeclarationToModuleMap {
+
+    private final Function<Angular2Module, Set<Angular2Declaration>> myDeclarationsGetter;
+    private final Function<Angular2Module, Set<Angular2Module>> myDependenciesGetter;
+
+    // guarded by this; changes are counted, so that those that come during a recompute are not lost when it is stored
+    private long myChangeCount = 1;
+    private long myInvalidatedAt = 1;
+    private long myValidatedAt;
+    private final Map<VirtualFile, Long> myChangedModuleFiles = new THashMap<>();
+    @Nullable private Entities myEntitiesUsed;
+    private long myRequestedBuild;
+    private long myStoredBuild;
+    private Map<Angular2Module, Set<Angular2Declaration>> myModuleDeclarations = Collections.emptyMap();
+    private Map<Angular2Module, Set<VirtualFile>> myModuleDependencies = Collections.emptyMap();
+    private MultiMap<Angular2Declaration, Angular2Module> myMap = MultiMap.empty();
+
+    private DeclarationToModuleMap(@NotNull Function<Angular2Module, Set<Angular2Declaration>> declarationsGetter,
+                                   @NotNull Function<Angular2Module, Set<Angular2Module>> dependenciesGetter) {
+      myDeclarationsGetter = declarationsGetter;
+      myDependenciesGetter = dependenciesGetter;
+    }
+
+    synchronized void invalidate() {
+      myInvalidatedAt = ++myChangeCount;
+    }
+
+    synchronized void moduleFileChanged(@NotNull VirtualFile file) {
+      myChangedModuleFiles.put(file, ++myChangeCount);
+    }
+
+    @NotNull
+    MultiMap<Angular2Declaration, Angular2Module> get() {
+      // flushes changed files to this map
+      Entities entities = getAllEntities();
+
+      boolean full;
+      Set<VirtualFile> changedFiles;
+      Map<Angular2Module, Set<Angular2Declaration>> previousDeclarations;
+      Map<Angular2Module, Set<VirtualFile>> previousDependencies;
+      long changeCount;
+      long build;
+      synchronized (this) {
+        // a map computed before the last invalidation is not valid
+        full = myInvalidatedAt > myValidatedAt || entities != myEntitiesUsed;
+        if (!full && myChangedModuleFiles.isEmpty()) {
+          return myMap;
+        }
+        // the changes are dropped only when the result is stored, so they are not lost if the computation is canceled
+        changedFiles = new THashSet<>(myChangedModuleFiles.keySet());
+        changeCount = myChangeCount;
+        previousDeclarations = myModuleDeclarations;
+        previousDependencies = myModuleDependencies;
+        build = ++myRequestedBuild;
+      }
+
+      Map<Angular2Module, Set<Angular2Declaration>> moduleDeclarations = new LinkedHashMap<>();
+      Map<Angular2Module, Set<VirtualFile>> moduleDependencies = new THashMap<>();
+      for (Angular2Module module : entities.getModules()) {
+        Set<VirtualFile> dependencies = full ? null : previousDependencies.get(module);
+        if (dependencies != null && !ContainerUtil.intersects(dependencies, changedFiles)) {
+          moduleDeclarations.put(module, previousDeclarations.get(module));
+          moduleDependencies.put(module, dependencies);
+          continue;
+        }
+        moduleDeclarations.put(module, myDeclarationsGetter.apply(module));
+        dependencies = new THashSet<>();
+        for (Angular2Module dependency : myDependenciesGetter.apply(module)) {
+          ContainerUtil.addIfNotNull(dependencies, getModuleFile(dependency));
+        }
+        moduleDependencies.put(module, dependencies);
+      }
+
+      synchronized (this) {
+        // a later build may have been stored while this one was computed
+        if (build > myStoredBuild) {
+          if (!moduleDeclarations.equals(myModuleDeclarations)) {
+            MultiMap<Angular2Declaration, Angular2Module> map = new MultiMap<>();
+            moduleDeclarations.forEach((module, declarations) -> declarations.forEach(decl -> map.putValue(decl, module)));
+            myModuleDeclarations = moduleDeclarations;
+            myMap = map;
+          }
+          myModuleDependencies = moduleDependencies;
+          myStoredBuild = build;
+          myEntitiesUsed = entities;
+          myValidatedAt = changeCount;
+          myChangedModuleFiles.values().removeIf(stamp -> stamp <= changeCount);
+        }
+        return myMap;
+      }
+    }
+  }
+}
@@ -1,7 +1,7 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata;
 
-import com.intellij.json.psi.JsonValue;
+import com.google.gson.JsonElement;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.tree.IStubFileElementType;
@@ -14,6 +14,8 @@ import org.angular2.lang.metadata.stubs.MetadataFileStubImpl;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Set;
+
 public final class Angular2MetadataFileType extends MetadataJsonFileType {
 
   public static final Angular2MetadataFileType INSTANCE = new Angular2MetadataFileType();
@@ -52,8 +54,14 @@ public final class Angular2MetadataFileType extends MetadataJsonFileType {
     return FILE;
   }
 
+  @NotNull
+  @Override
+  protected Set<String> getRootPropertyNames() {
+    return Angular2MetadataNodeModuleStub.ROOT_PROPERTIES;
+  }
+
   @Override
-  protected void createRootStub(MetadataFileStubImpl fileStub, JsonValue jsonRoot) {
+  protected void createRootStub(MetadataFileStubImpl fileStub, JsonElement jsonRoot) {
     new Angular2MetadataNodeModuleStub(fileStub, jsonRoot);
   }
 }
@@ -1,7 +1,10 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.intellij.lang.javascript.index.flags.BooleanStructureElement;
 import com.intellij.lang.javascript.index.flags.FlagsStructure;
 import com.intellij.openapi.util.AtomicNotNullLazyValue;
@@ -53,7 +56,7 @@ public class Angular2MetadataClassStubBase<Psi extends Angular2MetadataClassBase
   }
 
   public static Angular2MetadataClassStubBase<?> createClassStub(@Nullable String memberName,
-                                                                 @NotNull JsonValue source,
+                                                                 @NotNull JsonElement source,
                                                                  @Nullable StubElement parent) {
     return streamDecorators((JsonObject)source)
       .map(pair -> doIfNotNull(getEntityFactories().get(pair.first),
@@ -87,17 +90,17 @@ public class Angular2MetadataClassStubBase<Psi extends Angular2MetadataClassBase
     if (loadInOuts()) {
       readTemplateFlag(source);
     }
-    JsonObject extendsClass = getPropertyValue(source.findProperty(EXTENDS), JsonObject.class);
+    JsonObject extendsClass = getPropertyValue(source.get(EXTENDS), JsonObject.class);
     if (extendsClass != null) {
       Angular2MetadataReferenceStub.createReferenceStub(EXTENDS_MEMBER, extendsClass, this);
     }
     myOutputMappings = new HashMap<>();
     myInputMappings = new HashMap<>();
-    MetadataUtils.streamObjectProperty(source.findProperty(MEMBERS))
+    MetadataUtils.streamObjectProperty(source.get(MEMBERS))
       .forEach(this::loadMember);
-    MetadataUtils.streamObjectProperty(source.findProperty(STATICS))
+    MetadataUtils.streamObjectProperty(source.get(STATICS))
       .filter(prop -> prop.getValue() instanceof JsonObject
-                      && SYMBOL_FUNCTION.equals(readStringPropertyValue(((JsonObject)prop.getValue()).findProperty(SYMBOL_TYPE))))
+                      && SYMBOL_FUNCTION.equals(readStringPropertyValue(((JsonObject)prop.getValue()).get(SYMBOL_TYPE))))
       .forEach(this::loadMemberProperty);
   }
 
@@ -160,32 +163,55 @@ public class Angular2MetadataClassStubBase<Psi extends Angular2MetadataClassBase
   }
 
   private void readTemplateFlag(JsonObject source) {
-    JsonObject members = tryCast(doIfNotNull(source.findProperty(MEMBERS), JsonProperty::getValue), JsonObject.class);
-    JsonProperty constructor = members != null ? members.findProperty(CONSTRUCTOR) : null;
-    String constructorText = constructor != null ? constructor.getText() : "";
-    boolean hasTemplateRef = constructorText.contains(Angular2EntityUtils.TEMPLATE_REF);
-    writeFlag(IS_STRUCTURAL_DIRECTIVE_FLAG, hasTemplateRef || constructorText.contains(Angular2EntityUtils.VIEW_CONTAINER_REF));
+    JsonObject members = tryCast(source.get(MEMBERS), JsonObject.class);
+    JsonElement constructor = members != null ? members.get(CONSTRUCTOR) : null;
+    boolean hasTemplateRef = containsString(constructor, Angular2EntityUtils.TEMPLATE_REF);
+    writeFlag(IS_STRUCTURAL_DIRECTIVE_FLAG, hasTemplateRef || containsString(constructor, Angular2EntityUtils.VIEW_CONTAINER_REF));
     writeFlag(IS_REGULAR_DIRECTIVE_FLAG, !hasTemplateRef);
   }
 
-  private void loadMember(@NotNull JsonProperty property) {
-    String name = property.getName();
+  /**
+   * Checks whether any property name or string value within the element contains the text.
+   */
+  private static boolean containsString(@Nullable JsonElement element, @NotNull String text) {
+    if (element instanceof JsonObject) {
+      for (Map.Entry<String, JsonElement> entry : ((JsonObject)element).entrySet()) {
+        if (entry.getKey().contains(text) || containsString(entry.getValue(), text)) {
+          return true;
+        }
+      }
+    }
+    else if (element instanceof JsonArray) {
+      for (JsonElement child : (JsonArray)element) {
+        if (containsString(child, text)) {
+          return true;
+        }
+      }
+    }
+    else if (MetadataUtils.isStringLiteral(element)) {
+      return element.getAsString().contains(text);
+    }
+    return false;
+  }
+
+  private void loadMember(@NotNull Map.Entry<String, JsonElement> property) {
+    String name = property.getKey();
     JsonArray val = tryCast(property.getValue(), JsonArray.class);
-    if (val == null || val.getValueList().size() != 1) {
+    if (val == null || val.size() != 1) {
       return;
     }
-    JsonObject obj = tryCast(val.getValueList().get(0), JsonObject.class);
+    JsonObject obj = tryCast(val.get(0), JsonObject.class);
     if (obj == null) {
       return;
     }
-    String memberSymbol = readStringPropertyValue(obj.findProperty(SYMBOL_TYPE));
+    String memberSymbol = readStringPropertyValue(obj.get(SYMBOL_TYPE));
     if (loadInOuts() && (SYMBOL_PROPERTY.equals(memberSymbol) || SYMBOL_METHOD.equals(memberSymbol))) {
       streamDecorators(obj).forEach(dec -> {
         if (INPUT_DEC.equals(dec.first)) {
-          addBindingMapping(name, myInputMappings, getDecoratorInitializer(dec.second, JsonStringLiteral.class));
+          addBindingMapping(name, myInputMappings, getDecoratorInitializer(dec.second, JsonPrimitive.class));
         }
         else if (OUTPUT_DEC.equals(dec.first)) {
-          addBindingMapping(name, myOutputMappings, getDecoratorInitializer(dec.second, JsonStringLiteral.class));
+          addBindingMapping(name, myOutputMappings, getDecoratorInitializer(dec.second, JsonPrimitive.class));
         }
       });
     }
@@ -196,8 +222,8 @@ public class Angular2MetadataClassStubBase<Psi extends Angular2MetadataClassBase
 
   private static void addBindingMapping(@NotNull String fieldName,
                                         @NotNull Map<String, String> mappings,
-                                        @Nullable JsonStringLiteral initializer) {
-    String bindingName = initializer != null ? initializer.getValue() : fieldName;
+                                        @Nullable JsonPrimitive initializer) {
+    String bindingName = initializer != null && initializer.isString() ? initializer.getAsString() : fieldName;
     mappings.put(fieldName, bindingName);
   }
 
@@ -1,9 +1,10 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonObject;
+import com.google.gson.JsonObject;
 import com.intellij.lang.javascript.index.flags.BooleanStructureElement;
 import com.intellij.lang.javascript.index.flags.FlagsStructure;
+import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
@@ -47,12 +48,13 @@ public class Angular2MetadataComponentStub extends Angular2MetadataDirectiveStub
     JsonObject initializer = getDecoratorInitializer(decoratorSource, JsonObject.class);
     String template;
     if (initializer == null
-        || (template = readStringPropertyValue(initializer.findProperty(TEMPLATE_PROP))) == null
+        || (template = readStringPropertyValue(initializer.get(TEMPLATE_PROP))) == null
         || !template.contains("<" + NG_CONTENT)) {
       myNgContentSelectors = Collections.emptyList();
       return;
     }
-    PsiFile file = PsiFileFactory.getInstance(source.getProject())
+    // stubs are built without a project at hand, parsing the template does not depend on it
+    PsiFile file = PsiFileFactory.getInstance(ProjectManager.getInstance().getDefaultProject())
       .createFileFromText(Angular2HtmlLanguage.INSTANCE, template);
     myNgContentSelectors = new SmartList<>();
     if (file != null) {
@@ -1,7 +1,9 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.lang.javascript.index.flags.BooleanStructureElement;
 import com.intellij.lang.javascript.index.flags.FlagsStructure;
 import com.intellij.openapi.util.Pair;
@@ -16,6 +18,7 @@ import one.util.streamex.StreamEx;
 import org.angular2.entities.Angular2EntityUtils;
 import org.angular2.entities.metadata.psi.Angular2MetadataDirectiveBase;
 import org.angular2.index.Angular2MetadataDirectiveIndex;
+import org.angular2.lang.metadata.MetadataUtils;
 import org.angular2.lang.metadata.psi.MetadataElementType;
 import org.angular2.lang.metadata.stubs.MetadataElementStub;
 import org.jetbrains.annotations.NotNull;
@@ -27,12 +30,12 @@ import java.util.Map.Entry;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
-import static com.intellij.util.ObjectUtils.doIfNotNull;
 import static com.intellij.util.ObjectUtils.tryCast;
 import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toMap;
 import static org.angular2.Angular2DecoratorUtil.*;
 import static org.angular2.lang.metadata.MetadataUtils.getPropertyValue;
+import static org.angular2.lang.metadata.MetadataUtils.getValueList;
 import static org.angular2.lang.metadata.MetadataUtils.readStringPropertyValue;
 
 public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2MetadataDirectiveBase> extends Angular2MetadataEntityStub<Psi> {
@@ -69,8 +72,8 @@ public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2Meta
       return;
     }
 
-    mySelector = StringRef.fromString(readStringPropertyValue(initializer.findProperty(SELECTOR_PROP)));
-    myExportAs = StringRef.fromString(readStringPropertyValue(initializer.findProperty(EXPORT_AS_PROP)));
+    mySelector = StringRef.fromString(readStringPropertyValue(initializer.get(SELECTOR_PROP)));
+    myExportAs = StringRef.fromString(readStringPropertyValue(initializer.get(EXPORT_AS_PROP)));
     loadAdditionalBindingMappings(myInputMappings, initializer, INPUTS_PROP);
     loadAdditionalBindingMappings(myOutputMappings, initializer, OUTPUTS_PROP);
   }
@@ -132,10 +135,10 @@ public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2Meta
 
   @NotNull
   private static Map<String, Integer> loadAttributesMapping(@NotNull final JsonObject source) {
-    return StreamEx.ofNullable(getPropertyValue(source.findProperty(MEMBERS), JsonObject.class))
+    return StreamEx.ofNullable(getPropertyValue(source.get(MEMBERS), JsonObject.class))
       .map(toPropertyValue(CONSTRUCTOR, JsonArray.class))
       .nonNull()
-      .flatCollection(JsonArray::getValueList)
+      .flatCollection(MetadataUtils::getValueList)
       .select(JsonObject.class)
       .map(toPropertyValue(PARAMETER_DECORATORS, JsonArray.class))
       .nonNull()
@@ -148,23 +151,23 @@ public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2Meta
   private static Map<String, Integer> buildAttributesMapping(@NotNull final JsonArray paramDecorators) {
     // Checks if the input object represents the @Attribute decorator
     final Predicate<JsonObject> isAttributeDecorator = object -> {
-      final JsonObject expr = getPropertyValue(object.findProperty(EXPRESSION), JsonObject.class);
+      final JsonObject expr = getPropertyValue(object.get(EXPRESSION), JsonObject.class);
       final String decoratorName = expr != null
-                                   ? readStringPropertyValue(expr.findProperty(REFERENCE_NAME))
+                                   ? readStringPropertyValue(expr.get(REFERENCE_NAME))
                                    : null;
       return ATTRIBUTE_DEC.equals(decoratorName);
     };
 
-    return EntryStream.of(paramDecorators.getValueList())
+    return EntryStream.of(getValueList(paramDecorators))
       .selectValues(JsonArray.class)
-      .flatMapValues(a -> a.getValueList().stream())
+      .flatMapValues(a -> getValueList(a).stream())
       .selectValues(JsonObject.class)
       .filterValues(isAttributeDecorator)
       .mapValues(toPropertyValue(ARGUMENTS, JsonArray.class))
       .nonNullValues()
-      .mapValues(o -> o.getValueList().get(0))
-      .selectValues(JsonStringLiteral.class)
-      .mapValues(JsonStringLiteral::getValue)
+      .mapValues(o -> o.get(0))
+      .mapValues(MetadataUtils::readStringPropertyValue)
+      .nonNullValues()
       .filterValues(s -> !s.trim().isEmpty())
       .collect(toMap(Entry::getValue, Entry::getKey, (i, __) -> i));
   }
@@ -172,14 +175,11 @@ public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2Meta
   private void loadAdditionalBindingMappings(@NotNull Map<String, String> mappings,
                                              @NotNull JsonObject initializer,
                                              @NotNull String propertyName) {
-    JsonArray list = tryCast(doIfNotNull(initializer.findProperty(propertyName), JsonProperty::getValue), JsonArray.class);
-    if (list != null && ContainerUtil.all(list.getValueList(), JsonStringLiteral.class::isInstance)) {
-      for (JsonValue v : list.getValueList()) {
-        if (v instanceof JsonStringLiteral) {
-          String value = ((JsonStringLiteral)v).getValue();
-          Pair<String, String> p = Angular2EntityUtils.parsePropertyMapping(value);
-          mappings.putIfAbsent(p.first, p.second);
-        }
+    JsonArray list = tryCast(initializer.get(propertyName), JsonArray.class);
+    if (list != null && ContainerUtil.all(getValueList(list), MetadataUtils::isStringLiteral)) {
+      for (JsonElement v : list) {
+        Pair<String, String> p = Angular2EntityUtils.parsePropertyMapping(v.getAsString());
+        mappings.putIfAbsent(p.first, p.second);
       }
     }
     else {
@@ -187,8 +187,8 @@ public abstract class Angular2MetadataDirectiveStubBase<Psi extends Angular2Meta
     }
   }
 
-  private static <T extends JsonValue> Function<JsonObject, T> toPropertyValue(@NotNull final String property,
+  private static <T extends JsonElement> Function<JsonObject, T> toPropertyValue(@NotNull final String property,
                                                                                @NotNull final Class<T> clazz) {
-    return o -> getPropertyValue(o.findProperty(property), clazz);
+    return o -> getPropertyValue(o.get(property), clazz);
   }
 }
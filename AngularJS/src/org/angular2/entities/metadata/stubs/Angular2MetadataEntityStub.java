@@ -1,8 +1,8 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonObject;
-import com.intellij.json.psi.JsonProperty;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
@@ -42,9 +42,9 @@ public class Angular2MetadataEntityStub<Psi extends Angular2MetadataEntity> exte
 
   protected void stubDecoratorFields(@NotNull JsonObject initializer, @NotNull String... fields) {
     for (String name : fields) {
-      JsonProperty property = initializer.findProperty(name);
-      if (property != null) {
-        createMember(DECORATOR_FIELD_PREFIX + name, property.getValue());
+      JsonElement value = initializer.get(name);
+      if (value != null) {
+        createMember(DECORATOR_FIELD_PREFIX + name, value);
       }
     }
   }
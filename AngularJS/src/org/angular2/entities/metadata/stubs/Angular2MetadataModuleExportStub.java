@@ -1,9 +1,8 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonArray;
-import com.intellij.json.psi.JsonObject;
-import com.intellij.json.psi.JsonProperty;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.intellij.lang.javascript.index.flags.BooleanStructureElement;
 import com.intellij.lang.javascript.index.flags.FlagsStructure;
 import com.intellij.openapi.util.Pair;
@@ -44,15 +43,14 @@ public class Angular2MetadataModuleExportStub extends Angular2MetadataElementStu
   public Angular2MetadataModuleExportStub(@NotNull StubElement parent,
                                           @NotNull JsonObject source) {
     super((String)null, parent, Angular2MetadataElementTypes.MODULE_EXPORT);
-    myFrom = StringRef.fromString(MetadataUtils.readStringPropertyValue(source.findProperty(FROM)));
-    myExportMappings = StreamEx.ofNullable(source.findProperty(EXPORT))
-      .map(JsonProperty::getValue)
+    myFrom = StringRef.fromString(MetadataUtils.readStringPropertyValue(source.get(FROM)));
+    myExportMappings = StreamEx.ofNullable(source.get(EXPORT))
       .select(JsonArray.class)
-      .flatCollection(JsonArray::getValueList)
+      .flatCollection(MetadataUtils::getValueList)
       .select(JsonObject.class)
       .map(obj -> {
-        String name = MetadataUtils.readStringPropertyValue(obj.findProperty(NAME));
-        String as = MetadataUtils.readStringPropertyValue(obj.findProperty(AS));
+        String name = MetadataUtils.readStringPropertyValue(obj.get(NAME));
+        String as = MetadataUtils.readStringPropertyValue(obj.get(AS));
         return name == null || as == null
                ? null
                : Pair.pair(as, name);
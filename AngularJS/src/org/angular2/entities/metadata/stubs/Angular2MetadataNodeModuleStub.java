@@ -1,13 +1,14 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonArray;
-import com.intellij.json.psi.JsonObject;
-import com.intellij.json.psi.JsonValue;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
 import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.io.StringRef;
 import one.util.streamex.StreamEx;
 import org.angular2.entities.metadata.Angular2MetadataElementTypes;
@@ -19,6 +20,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.Set;
 
 public class Angular2MetadataNodeModuleStub extends Angular2MetadataElementStub<Angular2MetadataNodeModule> {
 
@@ -26,6 +28,11 @@ public class Angular2MetadataNodeModuleStub extends Angular2MetadataElementStub<
   @NonNls private static final String EXPORTS = "exports";
   private static final String METADATA = "metadata";
 
+  /**
+   * Properties of the file root object which are read by the stub, other ones are skipped while parsing.
+   */
+  public static final Set<String> ROOT_PROPERTIES = ContainerUtil.immutableSet(IMPORT_AS, EXPORTS, METADATA);
+
   @Nullable
   private final StringRef myImportAs;
 
@@ -34,19 +41,16 @@ public class Angular2MetadataNodeModuleStub extends Angular2MetadataElementStub<
     myImportAs = stream.readName();
   }
 
-  public Angular2MetadataNodeModuleStub(@Nullable StubElement parentStub, @Nullable JsonValue fileRoot) {
+  public Angular2MetadataNodeModuleStub(@Nullable StubElement parentStub, @Nullable JsonElement fileRoot) {
     super((String)null, parentStub, Angular2MetadataElementTypes.NODE_MODULE);
-    if (fileRoot instanceof JsonArray) {
-      fileRoot = ((JsonArray)fileRoot).getValueList().get(0);
-    }
     if (fileRoot instanceof JsonObject) {
       JsonObject fileRootObject = (JsonObject)fileRoot;
-      myImportAs = StringRef.fromString(MetadataUtils.readStringPropertyValue(fileRootObject.findProperty(IMPORT_AS)));
-      StreamEx.ofNullable(MetadataUtils.getPropertyValue(fileRootObject.findProperty(EXPORTS), JsonArray.class))
-        .flatCollection(JsonArray::getValueList)
+      myImportAs = StringRef.fromString(MetadataUtils.readStringPropertyValue(fileRootObject.get(IMPORT_AS)));
+      StreamEx.ofNullable(MetadataUtils.getPropertyValue(fileRootObject.get(EXPORTS), JsonArray.class))
+        .flatCollection(MetadataUtils::getValueList)
         .select(JsonObject.class)
         .forEach(object -> new Angular2MetadataModuleExportStub(this, object));
-      MetadataUtils.streamObjectProperty(fileRootObject.findProperty(METADATA))
+      MetadataUtils.streamObjectProperty(fileRootObject.get(METADATA))
         .forEach(this::loadMemberProperty);
     }
     else {
@@ -1,7 +1,7 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonObject;
+import com.google.gson.JsonObject;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
@@ -25,7 +25,7 @@ public class Angular2MetadataPipeStub extends Angular2MetadataEntityStub<Angular
                                                         @NotNull JsonObject decoratorSource) {
     JsonObject decoratorArg = getDecoratorInitializer(decoratorSource, JsonObject.class);
     if (decoratorArg != null) {
-      String pipeName = MetadataUtils.readStringPropertyValue(decoratorArg.findProperty(NAME));
+      String pipeName = MetadataUtils.readStringPropertyValue(decoratorArg.get(NAME));
       if (pipeName != null) {
         return new Angular2MetadataPipeStub(memberName, parent, classSource, pipeName);
       }
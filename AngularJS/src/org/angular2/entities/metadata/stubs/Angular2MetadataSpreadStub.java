@@ -1,9 +1,8 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonObject;
-import com.intellij.json.psi.JsonProperty;
-import com.intellij.json.psi.JsonValue;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
 import org.angular2.entities.metadata.Angular2MetadataElementTypes;
@@ -15,7 +14,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 
-import static com.intellij.util.ObjectUtils.doIfNotNull;
 import static com.intellij.util.ObjectUtils.tryCast;
 import static org.angular2.lang.metadata.MetadataUtils.readStringPropertyValue;
 
@@ -24,11 +22,11 @@ public class Angular2MetadataSpreadStub extends Angular2MetadataElementStub<Angu
   @NonNls private static final String SPREAD_EXPRESSION = "#expression";
 
   public static Angular2MetadataSpreadStub createSpreadStub(@Nullable String memberName,
-                                                            @NotNull JsonValue source,
+                                                            @NotNull JsonElement source,
                                                             @Nullable StubElement parent) {
     JsonObject sourceObject = (JsonObject)source;
-    if (SYMBOL_SPREAD.equals(readStringPropertyValue(sourceObject.findProperty(SYMBOL_TYPE)))) {
-      JsonValue spreadExpression = doIfNotNull(sourceObject.findProperty(EXPRESSION), JsonProperty::getValue);
+    if (SYMBOL_SPREAD.equals(readStringPropertyValue(sourceObject.get(SYMBOL_TYPE)))) {
+      JsonElement spreadExpression = sourceObject.get(EXPRESSION);
       if (spreadExpression != null) {
         return new Angular2MetadataSpreadStub(memberName, spreadExpression, parent);
       }
@@ -37,7 +35,7 @@ public class Angular2MetadataSpreadStub extends Angular2MetadataElementStub<Angu
   }
 
   private Angular2MetadataSpreadStub(@Nullable String memberName,
-                                     @NotNull JsonValue spreadExpression,
+                                     @NotNull JsonElement spreadExpression,
                                      @Nullable StubElement parent) {
     super(memberName, parent, Angular2MetadataElementTypes.SPREAD);
     createMember(SPREAD_EXPRESSION, spreadExpression);
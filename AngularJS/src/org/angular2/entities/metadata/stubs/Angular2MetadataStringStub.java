@@ -1,8 +1,7 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.entities.metadata.stubs;
 
-import com.intellij.json.psi.JsonStringLiteral;
-import com.intellij.json.psi.JsonValue;
+import com.google.gson.JsonElement;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
 import com.intellij.psi.stubs.StubOutputStream;
@@ -22,10 +21,10 @@ public class Angular2MetadataStringStub extends Angular2MetadataElementStub<Angu
   private final StringRef myValue;
 
   public Angular2MetadataStringStub(@Nullable String memberName,
-                                    @NotNull JsonValue source,
+                                    @NotNull JsonElement source,
                                     @Nullable StubElement parent) {
     super(memberName, parent, Angular2MetadataElementTypes.STRING);
-    myValue = StringRef.fromString(((JsonStringLiteral)source).getValue());
+    myValue = StringRef.fromString(source.getAsString());
   }
 
   public Angular2MetadataStringStub(@NotNull StubInputStream stream, @Nullable StubElement parent) throws IOException {
@@ -107,6 +107,18 @@ public class Angular2IndexingHandler extends FrameworkIndexingHandler {
     return MODULE_TYPE.equals(element.getTypeString());
   }
 
+  /**
+   * Returns names under which the directive is stored in {@link Angular2SourceDirectiveIndex}.
+   */
+  @NotNull
+  public static List<String> getDirectiveIndexNames(@NotNull JSImplicitElement directive) {
+    String type = directive.getTypeString();
+    if (type == null || !type.startsWith(DIRECTIVE_TYPE)) {
+      return emptyList();
+    }
+    return StringUtil.split(type.substring(DIRECTIVE_TYPE.length()), "/");
+  }
+
   @Override
   public boolean shouldCreateStubForLiteral(ASTNode node) {
     return checkIsInterestingPropertyValue(node.getTreeParent());
@@ -217,12 +229,8 @@ public class Angular2IndexingHandler extends FrameworkIndexingHandler {
     final String userID = element.getUserString();
     final StubIndexKey<String, JSImplicitElementProvider> index = userID != null ? INDEX_MAP.get(userID) : null;
     if (index == Angular2SourceDirectiveIndex.KEY) {
-      String type = element.toImplicitElement(null).getTypeString();
-      if (type != null && type.startsWith(DIRECTIVE_TYPE)) {
-        type = type.substring(DIRECTIVE_TYPE.length());
-        StringUtil.split(type, "/")
-          .forEach(name -> sink.occurrence(index, name));
-      }
+      getDirectiveIndexNames(element.toImplicitElement(null))
+        .forEach(name -> sink.occurrence(index, name));
       return true;
     }
     else if (index != null) {
@@ -1,7 +1,7 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.lang.metadata;
 
-import com.intellij.json.psi.JsonValue;
+import com.google.gson.JsonElement;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.ex.FileTypeIdentifiableByVirtualFile;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.util.Set;
 
 public abstract class MetadataJsonFileType implements FileType, FileTypeIdentifiableByVirtualFile {
 
@@ -47,5 +48,11 @@ public abstract class MetadataJsonFileType implements FileType, FileTypeIdentifi
 
   public abstract IStubFileElementType getFileElementType();
 
-  protected abstract void createRootStub(MetadataFileStubImpl result, JsonValue value);
+  /**
+   * @return names of the root object properties needed to build stubs, values of other properties are not loaded
+   */
+  @NotNull
+  protected abstract Set<String> getRootPropertyNames();
+
+  protected abstract void createRootStub(MetadataFileStubImpl result, JsonElement value);
 }
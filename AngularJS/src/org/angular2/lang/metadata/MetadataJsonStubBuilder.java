@@ -1,11 +1,15 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.lang.metadata;
 
-import com.intellij.json.JsonLanguage;
-import com.intellij.json.psi.impl.JsonFileImpl;
-import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiFileFactory;
 import com.intellij.psi.stubs.BinaryFileStubBuilder;
 import com.intellij.psi.stubs.Stub;
 import com.intellij.util.indexing.FileContent;
@@ -13,6 +17,15 @@ import org.angular2.lang.metadata.stubs.MetadataFileStubImpl;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Set;
+
+/**
+ * Builds stubs straight from the file bytes, without creating JSON PSI. Values, which are not used
+ * by the stubs, are skipped by the reader and are not loaded into memory at all.
+ */
 public class MetadataJsonStubBuilder implements BinaryFileStubBuilder {
 
   @Override
@@ -25,22 +38,66 @@ public class MetadataJsonStubBuilder implements BinaryFileStubBuilder {
   public Stub buildStubTree(@NotNull FileContent fileContent) {
     MetadataJsonFileType fileType = (MetadataJsonFileType)fileContent.getFileType();
 
-    CharSequence text = LoadTextUtil.getTextByBinaryPresentation(
-      fileContent.getContent(), fileContent.getFile());
-
-    JsonFileImpl jsonFile = (JsonFileImpl)PsiFileFactory
-      .getInstance(fileContent.getProject())
-      .createFileFromText(JsonLanguage.INSTANCE, text);
+    JsonElement root;
+    try {
+      root = readRoot(fileContent.getContent(), fileType.getRootPropertyNames());
+    }
+    catch (IOException | JsonParseException e) {
+      root = null;
+    }
 
     MetadataFileStubImpl result = new MetadataFileStubImpl(null, fileType.getFileElementType());
-    if (jsonFile.getTopLevelValue() != null) {
-      fileType.createRootStub(result, jsonFile.getTopLevelValue());
+    if (root != null) {
+      fileType.createRootStub(result, root);
     }
     return result;
   }
 
   @Override
   public int getStubVersion() {
-    return 20;
+    return 21;
+  }
+
+  /**
+   * Reads the root value of the metadata file. If the root is an array, only its first element is read.
+   * Only the properties of the root object listed in {@code rootPropertyNames} are loaded.
+   *
+   * @return root object, {@link JsonNull} if the root value is not an object, or {@code null} for an empty file
+   */
+  @Nullable
+  static JsonElement readRoot(@NotNull byte[] content, @NotNull Set<String> rootPropertyNames) throws IOException {
+    int offset = CharsetToolkit.hasUTF8Bom(content) ? CharsetToolkit.UTF8_BOM.length : 0;
+    JsonReader reader = new JsonReader(new InputStreamReader(
+      new ByteArrayInputStream(content, offset, content.length - offset), CharsetToolkit.UTF8_CHARSET));
+    reader.setLenient(true);
+
+    JsonToken token = reader.peek();
+    if (token == JsonToken.END_DOCUMENT) {
+      return null;
+    }
+    if (token == JsonToken.BEGIN_ARRAY) {
+      reader.beginArray();
+      if (!reader.hasNext()) {
+        return JsonNull.INSTANCE;
+      }
+      token = reader.peek();
+    }
+    if (token != JsonToken.BEGIN_OBJECT) {
+      return JsonNull.INSTANCE;
+    }
+
+    JsonParser parser = new JsonParser();
+    JsonObject result = new JsonObject();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (rootPropertyNames.contains(name)) {
+        result.add(name, parser.parse(reader));
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    return result;
   }
 }
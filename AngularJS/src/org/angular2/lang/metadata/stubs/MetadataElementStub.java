@@ -1,7 +1,9 @@
 // Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.angular2.lang.metadata.stubs;
 
-import com.intellij.json.psi.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.lang.javascript.index.flags.BooleanStructureElement;
 import com.intellij.lang.javascript.index.flags.FlagsStructure;
 import com.intellij.lang.javascript.index.flags.FlagsStructureElement;
@@ -23,9 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static com.intellij.util.ObjectUtils.doIfNotNull;
 import static com.intellij.util.ObjectUtils.tryCast;
+import static org.angular2.lang.metadata.MetadataUtils.isStringLiteral;
 import static org.angular2.lang.metadata.MetadataUtils.readStringPropertyValue;
 
 public abstract class MetadataElementStub<Psi extends MetadataElement> extends StubBase<Psi> {
@@ -125,20 +128,20 @@ public abstract class MetadataElementStub<Psi extends MetadataElement> extends S
     return FLAGS_STRUCTURE;
   }
 
-  protected void loadMemberProperty(@NotNull JsonProperty p) {
-    createMember(p.getName(), p.getValue());
+  protected void loadMemberProperty(@NotNull Map.Entry<String, JsonElement> p) {
+    createMember(p.getKey(), p.getValue());
   }
 
-  protected void createMember(@Nullable String name, @Nullable JsonValue member) {
+  protected void createMember(@Nullable String name, @Nullable JsonElement member) {
     ConstructorFromJsonValue constructor = null;
     if (member instanceof JsonArray) {
       constructor = getTypeFactory().get(ARRAY_TYPE);
     }
     else if (member instanceof JsonObject) {
-      String type = readStringPropertyValue(((JsonObject)member).findProperty(SYMBOL_TYPE));
+      String type = readStringPropertyValue(((JsonObject)member).get(SYMBOL_TYPE));
       constructor = getTypeFactory().get(type == null ? OBJECT_TYPE : type);
     }
-    else if (member instanceof JsonStringLiteral) {
+    else if (isStringLiteral(member)) {
       constructor = getTypeFactory().get(STRING_TYPE);
     }
     if (constructor != null) {
@@ -184,30 +187,32 @@ public abstract class MetadataElementStub<Psi extends MetadataElement> extends S
 
   @NotNull
   protected static Stream<Pair<String, JsonObject>> streamDecorators(@NotNull JsonObject sourceClass) {
-    JsonArray list = tryCast(doIfNotNull(sourceClass.findProperty(DECORATORS), JsonProperty::getValue), JsonArray.class);
+    JsonArray list = tryCast(sourceClass.get(DECORATORS), JsonArray.class);
     if (list == null) {
       return Stream.empty();
     }
-    return list.getValueList().stream()
+    return StreamSupport.stream(list.spliterator(), false)
       .map(v -> tryCast(v, JsonObject.class))
-      .filter(obj -> obj != null
-                     && SYMBOL_CALL.equals(readStringPropertyValue(obj.findProperty(SYMBOL_TYPE))))
-      .map(obj -> tryCast(doIfNotNull(obj.findProperty(EXPRESSION), JsonProperty::getValue), JsonObject.class))
-      .filter(obj -> obj != null
-                     && SYMBOL_REFERENCE.equals(readStringPropertyValue(obj.findProperty(SYMBOL_TYPE))))
-      .map(obj -> Pair.create(readStringPropertyValue(obj.findProperty(REFERENCE_NAME)), (JsonObject)obj.getParent().getParent()))
-      .filter(pair -> pair.first != null);
+      .filter(call -> call != null
+                      && SYMBOL_CALL.equals(readStringPropertyValue(call.get(SYMBOL_TYPE))))
+      .map(call -> {
+        JsonObject expression = tryCast(call.get(EXPRESSION), JsonObject.class);
+        return expression != null && SYMBOL_REFERENCE.equals(readStringPropertyValue(expression.get(SYMBOL_TYPE)))
+               ? Pair.create(readStringPropertyValue(expression.get(REFERENCE_NAME)), call)
+               : null;
+      })
+      .filter(pair -> pair != null && pair.first != null);
   }
 
   @Nullable
-  protected static <T extends JsonValue> T getDecoratorInitializer(@NotNull JsonObject decorator, Class<T> initializerClass) {
-    JsonArray args = tryCast(doIfNotNull(decorator.findProperty(ARGUMENTS), JsonProperty::getValue), JsonArray.class);
-    return args != null && args.getValueList().size() == 1 ? tryCast(args.getValueList().get(0), initializerClass) : null;
+  protected static <T extends JsonElement> T getDecoratorInitializer(@NotNull JsonObject decorator, Class<T> initializerClass) {
+    JsonArray args = tryCast(decorator.get(ARGUMENTS), JsonArray.class);
+    return args != null && args.size() == 1 ? tryCast(args.get(0), initializerClass) : null;
   }
 
   protected interface ConstructorFromJsonValue {
     MetadataElementStub construct(@Nullable String memberName,
-                                  @NotNull JsonValue source,
+                                  @NotNull JsonElement source,
                                   @Nullable StubElement parent);
   }
 }
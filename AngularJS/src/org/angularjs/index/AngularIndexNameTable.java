@@ -0,0 +1,268 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angularjs.index;
+
+import com.intellij.lang.javascript.psi.JSImplicitElementProvider;
+import com.intellij.lang.javascript.psi.stubs.JSElementIndexingData;
+import com.intellij.lang.javascript.psi.stubs.JSImplicitElement;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.psi.stubs.StubTree;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Project-wide table of names stored in AngularJS stub indices, which replaces per-index {@code getAllKeys} calls in
+ * completion and resolve.
+ * <p>
+ * The table is built once from the stub indices and then kept up to date per file: a changed file is rescanned when
+ * the table is queried next time, and the sorted names of an index are rebuilt only if a name has been added
+ * to or removed from it. The full rebuild after root changes or leaving dumb mode runs outside of the lock.
+ */
+public class AngularIndexNameTable {
+
+  private final Project myProject;
+  // incremented when the table must be rebuilt
+  private final SimpleModificationTracker myRebuildTracker = new SimpleModificationTracker();
+  // changed files with their change stamps, a file stays dirty until the names computed for its last change are stored
+  private final Map<VirtualFile, Long> myDirtyFiles = ContainerUtil.newConcurrentMap();
+  private final AtomicLong myChangeStamp = new AtomicLong();
+
+  private final Object myLock = new Object();
+  // guarded by myLock
+  @Nullable private Map<VirtualFile, FileNames> myFileNames;
+  private long myFileNamesModificationCount = -1;
+  private final Map<StubIndexKey<String, JSImplicitElementProvider>, TObjectIntHashMap<String>> myNameCounts = new THashMap<>();
+  private final Map<StubIndexKey<String, JSImplicitElementProvider>, AngularSortedKeys> mySortedNames = new THashMap<>();
+
+  public AngularIndexNameTable(@NotNull Project project) {
+    myProject = project;
+    new AngularProjectFilesListener() {
+      @Override
+      protected void fileChanged(@NotNull VirtualFile file) {
+        myDirtyFiles.put(file, myChangeStamp.incrementAndGet());
+      }
+
+      @Override
+      protected void invalidateAll() {
+        myRebuildTracker.incModificationCount();
+      }
+    }.subscribe(project);
+  }
+
+  public static AngularIndexNameTable getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, AngularIndexNameTable.class);
+  }
+
+  static boolean isSupported(@NotNull StubIndexKey<?, ?> index) {
+    //noinspection SuspiciousMethodCalls
+    return AngularJSIndexingHandler.getIndexKeys().contains(index);
+  }
+
+  /**
+   * @return sorted names, which have elements in the index; {@code contains} performs a binary search
+   */
+  @NotNull
+  List<String> getNames(@NotNull StubIndexKey<String, JSImplicitElementProvider> index) {
+    return getNamesWithPrefix(index, "");
+  }
+
+  @NotNull
+  List<String> getNamesWithPrefix(@NotNull StubIndexKey<String, JSImplicitElementProvider> index, @NotNull String prefix) {
+    rebuildIfNeeded();
+    Map<VirtualFile, Long> dirtyFiles = new THashMap<>(myDirtyFiles);
+    Map<VirtualFile, FileNames> dirtyFileNames = computeDirtyFileNames(dirtyFiles.keySet());
+    synchronized (myLock) {
+      updateDirtyFiles(dirtyFiles, dirtyFileNames);
+      AngularSortedKeys names = mySortedNames.get(index);
+      if (names == null) {
+        TObjectIntHashMap<String> counts = myNameCounts.get(index);
+        names = counts != null ? AngularSortedKeys.create(Arrays.asList(counts.keys(new String[counts.size()])))
+                               : AngularSortedKeys.EMPTY;
+        mySortedNames.put(index, names);
+      }
+      return names.withPrefix(prefix);
+    }
+  }
+
+  private void rebuildIfNeeded() {
+    long modificationCount = myRebuildTracker.getModificationCount();
+    synchronized (myLock) {
+      if (myFileNames != null && myFileNamesModificationCount >= modificationCount) return;
+    }
+    // files changed during the rebuild stay dirty and are rescanned once more
+    Map<VirtualFile, Long> dirtyFiles = new THashMap<>(myDirtyFiles);
+    Map<VirtualFile, FileNames> fileNames = collectIndexedNames(myProject);
+    synchronized (myLock) {
+      if (myFileNamesModificationCount < modificationCount) {
+        myFileNames = fileNames;
+        myFileNamesModificationCount = modificationCount;
+        myNameCounts.clear();
+        mySortedNames.clear();
+        for (FileNames names : fileNames.values()) {
+          updateCounts(names, 1);
+        }
+        dirtyFiles.forEach(myDirtyFiles::remove);
+      }
+    }
+  }
+
+  /**
+   * Called outside of the lock, since it loads stub trees or PSI; if it is canceled, the files stay dirty.
+   */
+  @NotNull
+  private Map<VirtualFile, FileNames> computeDirtyFileNames(@NotNull Collection<VirtualFile> dirtyFiles) {
+    if (dirtyFiles.isEmpty()) return Collections.emptyMap();
+    Map<VirtualFile, FileNames> result = new THashMap<>();
+    GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+    PsiManager psiManager = PsiManager.getInstance(myProject);
+    for (VirtualFile virtualFile : dirtyFiles) {
+      PsiFile file = virtualFile.isValid() && scope.contains(virtualFile) ? psiManager.findFile(virtualFile) : null;
+      result.put(virtualFile, file != null ? computeFileNames(file) : FileNames.EMPTY);
+    }
+    return result;
+  }
+
+  private void updateDirtyFiles(@NotNull Map<VirtualFile, Long> dirtyFiles, @NotNull Map<VirtualFile, FileNames> dirtyFileNames) {
+    assert myFileNames != null;
+    for (Map.Entry<VirtualFile, FileNames> entry : dirtyFileNames.entrySet()) {
+      VirtualFile virtualFile = entry.getKey();
+      // the file may have been changed again or stored by another thread meanwhile
+      if (!myDirtyFiles.remove(virtualFile, dirtyFiles.get(virtualFile))) {
+        continue;
+      }
+      FileNames names = entry.getValue();
+      FileNames previous = names.isEmpty() ? myFileNames.remove(virtualFile) : myFileNames.put(virtualFile, names);
+      if (!names.equals(previous != null ? previous : FileNames.EMPTY)) {
+        if (previous != null) {
+          updateCounts(previous, -1);
+        }
+        updateCounts(names, 1);
+      }
+    }
+  }
+
+  private void updateCounts(@NotNull FileNames names, int delta) {
+    names.myNames.forEach((index, indexNames) -> {
+      TObjectIntHashMap<String> counts = myNameCounts.computeIfAbsent(index, k -> new TObjectIntHashMap<>());
+      for (String name : indexNames) {
+        int count = counts.get(name) + delta;
+        if (count > 0) {
+          if (counts.put(name, count) == 0) {
+            // a new name has appeared in the index
+            mySortedNames.remove(index);
+          }
+        }
+        else {
+          counts.remove(name);
+          mySortedNames.remove(index);
+        }
+      }
+    });
+  }
+
+  /**
+   * Initial contents are taken from the stub indices themselves.
+   */
+  @NotNull
+  private static Map<VirtualFile, FileNames> collectIndexedNames(@NotNull Project project) {
+    Map<VirtualFile, FileNames> result = new THashMap<>();
+    StubIndex stubIndex = StubIndex.getInstance();
+    GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+    for (StubIndexKey<String, JSImplicitElementProvider> index : AngularJSIndexingHandler.getIndexKeys()) {
+      for (String name : stubIndex.getAllKeys(index, project)) {
+        stubIndex.processElements(index, name, project, scope, JSImplicitElementProvider.class, provider -> {
+          VirtualFile file = provider.isValid() ? provider.getContainingFile().getViewProvider().getVirtualFile() : null;
+          if (file != null) {
+            result.computeIfAbsent(file, f -> new FileNames()).add(index, name);
+          }
+          return true;
+        });
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static FileNames computeFileNames(@NotNull PsiFile file) {
+    FileNames result = new FileNames();
+    for (PsiFile root : file.getViewProvider().getAllFiles()) {
+      for (JSImplicitElementProvider provider : getImplicitElementProviders(root)) {
+        JSElementIndexingData indexingData = provider.getIndexingData();
+        Collection<JSImplicitElement> elements = indexingData != null ? indexingData.getImplicitElements() : null;
+        if (elements == null) {
+          continue;
+        }
+        for (JSImplicitElement element : elements) {
+          String name = element.getName();
+          if (name != null) {
+            AngularJSIndexingHandler.processIndexKeys(element, index -> result.add(index, name));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static Collection<JSImplicitElementProvider> getImplicitElementProviders(@NotNull PsiFile file) {
+    StubTree stubTree = file instanceof PsiFileImpl ? ((PsiFileImpl)file).getStubTree() : null;
+    List<JSImplicitElementProvider> result = new ArrayList<>();
+    if (file instanceof JSImplicitElementProvider) {
+      result.add((JSImplicitElementProvider)file);
+    }
+    if (stubTree == null) {
+      result.addAll(PsiTreeUtil.findChildrenOfType(file, JSImplicitElementProvider.class));
+      return result;
+    }
+    for (StubElement<?> stub : stubTree.getPlainList()) {
+      PsiElement psi = stub.getPsi();
+      if (psi instanceof JSImplicitElementProvider && psi != file) {
+        result.add((JSImplicitElementProvider)psi);
+      }
+    }
+    return result;
+  }
+
+  private static final class FileNames {
+
+    static final FileNames EMPTY = new FileNames();
+
+    private final Map<StubIndexKey<String, JSImplicitElementProvider>, Set<String>> myNames = new THashMap<>();
+
+    void add(@NotNull StubIndexKey<String, JSImplicitElementProvider> index, @NotNull String name) {
+      myNames.computeIfAbsent(index, k -> new THashSet<>()).add(name);
+    }
+
+    boolean isEmpty() {
+      return myNames.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      return myNames.equals(((FileNames)o).myNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return myNames.hashCode();
+    }
+  }
+}
@@ -136,8 +136,16 @@ public class AngularIndexUtil {
     return list.toArray(ResolveResult.EMPTY_ARRAY);
   }
 
+  /**
+   * Names from AngularJS stub indices are taken from {@link AngularIndexNameTable}; the returned collection is sorted
+   * and its {@code contains} is fast.
+   */
+  @SuppressWarnings("unchecked")
   @NotNull
   public static Collection<String> getAllKeys(@NotNull final ID<String, ?> index, @NotNull final Project project) {
+    if (index instanceof StubIndexKey && AngularIndexNameTable.isSupported((StubIndexKey<?, ?>)index)) {
+      return AngularIndexNameTable.getInstance(project).getNames((StubIndexKey<String, JSImplicitElementProvider>)index);
+    }
     final String indexId = index.getName();
     final Key<ParameterizedCachedValue<Collection<String>, Pair<Project, ID<String, ?>>>> key =
       ConcurrencyUtil.cacheOrGet(ourCacheKeys, indexId, Key.create("angularjs.index." + indexId));
@@ -145,6 +153,16 @@ public class AngularIndexUtil {
     return CachedValuesManager.getManager(project).getParameterizedCachedValue(project, key, PROVIDER, false, pair);
   }
 
+  @NotNull
+  public static Collection<String> getKeysWithPrefix(@NotNull final StubIndexKey<String, JSImplicitElementProvider> index,
+                                                     @NotNull final String prefix,
+                                                     @NotNull final Project project) {
+    if (AngularIndexNameTable.isSupported(index)) {
+      return AngularIndexNameTable.getInstance(project).getNamesWithPrefix(index, prefix);
+    }
+    return ContainerUtil.filter(getAllKeys(index, project), key -> key.startsWith(prefix));
+  }
+
   public static boolean hasAngularJS(@NotNull final Project project) {
     if (ApplicationManager.getApplication().isUnitTestMode() && "disabled".equals(System.getProperty("angular.js"))) return false;
     return getAngularJSVersion(project) > 0;
@@ -397,6 +397,33 @@ public class AngularJSIndexingHandler extends FrameworkIndexingHandler {
     return false;
   }
 
+  /**
+   * @return AngularJS stub indices, which store names of implicit elements
+   */
+  @NotNull
+  static Collection<StubIndexKey<String, JSImplicitElementProvider>> getIndexKeys() {
+    return Collections.unmodifiableCollection(INDEXES.values());
+  }
+
+  /**
+   * Passes the AngularJS stub indices, in which the name of the element is stored, to the consumer.
+   * Must be kept in sync with {@link #indexImplicitElement} and {@link Angular2IndexingHandler#indexImplicitElement}.
+   */
+  static void processIndexKeys(@NotNull JSImplicitElement element,
+                               @NotNull Consumer<? super StubIndexKey<String, JSImplicitElementProvider>> consumer) {
+    final String userID = element.getUserString();
+    final StubIndexKey<String, JSImplicitElementProvider> index = userID != null ? INDEXES.get(userID) : null;
+    if (index != null) {
+      consumer.consume(index);
+      if (index != AngularSymbolIndex.KEY) {
+        consumer.consume(AngularSymbolIndex.KEY);
+      }
+    }
+    else if (Angular2IndexingHandler.isPipe(element)) {
+      consumer.consume(AngularSymbolIndex.KEY);
+    }
+  }
+
   @Override
   public JSElementIndexingData processJSDocComment(@NotNull final JSDocComment comment, @Nullable JSElementIndexingData outData) {
     JSDocTag ngdocTag = null;
@@ -0,0 +1,126 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angularjs.index;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.*;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Change notifications for project-wide data collected from files, such as names or entities from stub indices.
+ * <p>
+ * Physical files changed in PSI or VFS are reported one by one. Creation or deletion of a directory in the project content,
+ * root changes and leaving dumb mode may add or remove a lot of files, so they require a full rebuild. Notifications
+ * come on any thread including EDT, so implementations must not block on a lock held while the data is being rebuilt.
+ */
+public abstract class AngularProjectFilesListener {
+
+  protected abstract void fileChanged(@NotNull VirtualFile file);
+
+  protected abstract void invalidateAll();
+
+  public final void subscribe(@NotNull Project project) {
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        psiChanged(project, event);
+      }
+
+      @Override
+      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        psiChanged(project, event);
+      }
+
+      @Override
+      public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        psiChanged(project, event);
+      }
+
+      @Override
+      public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        psiChanged(project, event);
+      }
+
+      @Override
+      public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        psiChanged(project, event);
+      }
+    }, project);
+
+    MessageBusConnection connection = project.getMessageBus().connect(project);
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          vfsChanged(project, event);
+        }
+      }
+    });
+    connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        invalidateAll();
+      }
+    });
+    connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+      @Override
+      public void enteredDumbMode() {
+      }
+
+      @Override
+      public void exitDumbMode() {
+        invalidateAll();
+      }
+    });
+  }
+
+  private void psiChanged(@NotNull Project project, @NotNull PsiTreeChangeEvent event) {
+    PsiFile file = event.getFile();
+    if (file == null && event.getChild() instanceof PsiFile) {
+      file = (PsiFile)event.getChild();
+    }
+    if (file != null) {
+      if (file.isPhysical()) {
+        fileChanged(file.getViewProvider().getVirtualFile());
+      }
+    }
+    else if (event.getChild() instanceof PsiDirectory || event.getOldChild() instanceof PsiDirectory) {
+      PsiElement parent = event.getParent();
+      if (!(parent instanceof PsiDirectory) || isInContent(project, ((PsiDirectory)parent).getVirtualFile())) {
+        invalidateAll();
+      }
+    }
+  }
+
+  private void vfsChanged(@NotNull Project project, @NotNull VFileEvent event) {
+    VirtualFile file = event.getFile();
+    if (file == null || file.isDirectory()) {
+      // renaming of a directory doesn't affect the data, anything else may add or remove a lot of files;
+      // directories outside of the project content, e.g. build output, are not indexed
+      if (!(event instanceof VFilePropertyChangeEvent)
+          && (file == null || isInContent(project, file.isValid() ? file : file.getParent()))) {
+        invalidateAll();
+      }
+    }
+    else {
+      fileChanged(file);
+    }
+  }
+
+  private static boolean isInContent(@NotNull Project project, @Nullable VirtualFile file) {
+    return file != null && file.isValid() && ProjectRootManager.getInstance(project).getFileIndex().isInContent(file);
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angularjs.index;
+
+import com.intellij.util.ArrayUtilRt;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Immutable sorted list of distinct index keys. Takes a single array, looks keys up with a binary search
+ * and returns keys with a common prefix as a view of a contiguous range.
+ */
+final class AngularSortedKeys extends AbstractList<String> implements RandomAccess {
+
+  static final AngularSortedKeys EMPTY = new AngularSortedKeys(ArrayUtilRt.EMPTY_STRING_ARRAY, 0, 0);
+
+  private final String[] myKeys;
+  private final int myStart;
+  private final int myEnd;
+
+  private AngularSortedKeys(@NotNull String[] keys, int start, int end) {
+    myKeys = keys;
+    myStart = start;
+    myEnd = end;
+  }
+
+  @NotNull
+  static AngularSortedKeys create(@NotNull Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return EMPTY;
+    }
+    String[] array = ArrayUtilRt.toStringArray(keys);
+    Arrays.sort(array);
+    int size = 0;
+    for (String key : array) {
+      if (size == 0 || !array[size - 1].equals(key)) {
+        array[size++] = key;
+      }
+    }
+    return new AngularSortedKeys(size == array.length ? array : Arrays.copyOf(array, size), 0, size);
+  }
+
+  @NotNull
+  AngularSortedKeys withPrefix(@NotNull String prefix) {
+    if (prefix.isEmpty()) {
+      return this;
+    }
+    int from = Arrays.binarySearch(myKeys, myStart, myEnd, prefix);
+    if (from < 0) {
+      from = -from - 1;
+    }
+    // keys starting with the prefix follow it immediately in the sorted order
+    int low = from;
+    int high = myEnd;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myKeys[mid].startsWith(prefix)) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return from == myStart && low == myEnd ? this : new AngularSortedKeys(myKeys, from, low);
+  }
+
+  @Override
+  public String get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+    return myKeys[myStart + index];
+  }
+
+  @Override
+  public int size() {
+    return myEnd - myStart;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    if (!(o instanceof String)) {
+      return -1;
+    }
+    int index = Arrays.binarySearch(myKeys, myStart, myEnd, o);
+    return index >= 0 ? index - myStart : -1;
+  }
+
+  @Override
+  public int lastIndexOf(Object o) {
+    return indexOf(o);
+  }
+}
@@ -336,6 +336,17 @@ public class Angular2DirectiveSimpleSelectorSpecTest {
         expect(matched.size()).toEqual(2);
         expect(matched).toEqual(newArrayList(s1.get(0), 1));
       });
+
+      it("should select from a list again in a subsequent match", () -> {
+        matcher.addSelectables(s1 = Angular2DirectiveSimpleSelector.parse("input, .someClass"), 1);
+
+        expect(matcher.match(getSelectorFor("input", "someclass"), selectableCollector)).toEqual(true);
+        expect(matched).toEqual(newArrayList(s1.get(0), 1));
+
+        reset();
+        expect(matcher.match(getSelectorFor("input", "someclass"), selectableCollector)).toEqual(true);
+        expect(matched).toEqual(newArrayList(s1.get(0), 1));
+      });
     });
 
     describe("CssSelector.parse", () -> {
@@ -7,6 +7,7 @@ import com.intellij.json.psi.impl.JsonFileImpl;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElementVisitor;
@@ -26,6 +27,7 @@ import org.angular2.lang.metadata.psi.MetadataFileImpl;
 import org.angularjs.AngularTestUtil;
 
 import java.io.File;
+import java.io.IOException;
 
 import static com.intellij.openapi.util.Pair.pair;
 import static java.util.Arrays.asList;
@@ -76,6 +78,21 @@ public class MetadataTest extends Angular2CodeInsightFixtureTestCase {
     testMetadataStubBuilding("forms.metadata.json");
   }
 
+  public void testMetadataStubBuildingSkipsUnusedValues() throws IOException {
+    myFixture.configureByFiles("package.json", "forms.d.ts");
+    String text = FileUtil.loadFile(new File(getTestDataPath(), "forms.metadata.json"), CharsetToolkit.UTF8_CHARSET);
+    // only the first element of the root array and known root properties are used
+    VirtualFile vFile = myFixture.addFileToProject(
+      "forms.metadata.json",
+      "[" + text.replaceFirst("\\{", "{\"origins\":{\"FormsModule\":[{\"__symbolic\":\"reference\",\"name\":\"Foo\"}]},") +
+      ",{\"__symbolic\":\"module\",\"version\":3,\"metadata\":{\"Bar\":{\"__symbolic\":\"class\"}}}]"
+    ).getVirtualFile();
+    PsiFile file = myFixture.getPsiManager().findFile(vFile);
+    assert file instanceof MetadataFileImpl;
+    String result = DebugUtil.psiToString(file, false, false);
+    UsefulTestCase.assertSameLinesWithFile(new File(getTestDataPath(), "forms.metadata.psi.txt").toString(), result);
+  }
+
   public void testSyncFusionDropdownsMetadataStubBuilding() {
     myFixture.configureByFiles("@syncfusion-ej2-angular-dropdowns/ej2-angular-dropdowns.d.ts", "package.json");
     testMetadataStubBuilding("@syncfusion-ej2-angular-dropdowns/ej2-angular-dropdowns.metadata.json");
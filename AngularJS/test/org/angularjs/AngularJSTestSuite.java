@@ -7,6 +7,7 @@ import org.angularjs.codeInsight.messageFormat.AngularMessageFormatAnnotatorTest
 import org.angularjs.editor.AngularTypedHandlerTest;
 import org.angularjs.findUsages.FindUsagesTest;
 import org.angularjs.index.AngularDirectiveCommentParsingTest;
+import org.angularjs.index.AngularSortedKeysTest;
 import org.angularjs.lang.lexer.AngularJSLexerTest;
 import org.angularjs.lang.parser.AngularJSParserTest;
 import org.angularjs.refactoring.DirectiveRenameTest;
@@ -30,6 +31,7 @@ import org.junit.runners.Suite;
   AngularTypedHandlerTest.class,
   FindUsagesTest.class,
   AngularDirectiveCommentParsingTest.class,
+  AngularSortedKeysTest.class,
   AngularJSInjectorMatchingEndFinderTest.class,
   AngularMessageFormatAnnotatorTest.class,
   DirectiveRenameTest.class,
@@ -0,0 +1,36 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angularjs.index;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class AngularSortedKeysTest extends TestCase {
+
+  public void testSortedAndDistinct() {
+    AngularSortedKeys keys = AngularSortedKeys.create(Arrays.asList("ngModel", "app", "ngClick", "app", "ng"));
+    assertEquals(Arrays.asList("app", "ng", "ngClick", "ngModel"), keys);
+    assertTrue(keys.contains("ngClick"));
+    assertFalse(keys.contains("ngClic"));
+    assertFalse(keys.contains(null));
+    assertEquals(2, keys.indexOf("ngClick"));
+  }
+
+  public void testPrefix() {
+    AngularSortedKeys keys = AngularSortedKeys.create(Arrays.asList("ngModel", "app", "ngClick", "nga", "o", "ng"));
+    assertEquals(Arrays.asList("ng", "ngClick", "ngModel", "nga"), keys.withPrefix("ng"));
+    assertEquals(Collections.singletonList("ngModel"), keys.withPrefix("ngM"));
+    assertEquals(Collections.emptyList(), keys.withPrefix("ngX"));
+    assertEquals(Collections.emptyList(), keys.withPrefix("z"));
+    assertEquals(keys, keys.withPrefix(""));
+    assertTrue(keys.withPrefix("ng").contains("nga"));
+    assertFalse(keys.withPrefix("ng").contains("app"));
+    assertEquals(-1, keys.withPrefix("ng").indexOf("o"));
+  }
+
+  public void testEmpty() {
+    assertTrue(AngularSortedKeys.create(Collections.emptyList()).isEmpty());
+    assertTrue(AngularSortedKeys.EMPTY.withPrefix("a").isEmpty());
+  }
+}
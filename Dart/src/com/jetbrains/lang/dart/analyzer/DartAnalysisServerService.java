@@ -86,6 +86,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -95,6 +96,8 @@ public class DartAnalysisServerService implements Disposable {
   private static final String MIN_MOVE_FILE_SDK_VERSION = "2.3.2";
 
   private static final long UPDATE_FILES_TIMEOUT = 300;
+  // max number of overlay content chars sent by one debounced analysis.updateContent request, the rest goes with the next one
+  private static final int UPDATE_FILES_CHARS_BUDGET = 1024 * 1024;
 
   private static final long CHECK_CANCELLED_PERIOD = 10;
   private static final long SEND_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
@@ -117,6 +120,7 @@ public class DartAnalysisServerService implements Disposable {
   private static final long GET_TYPE_HIERARCHY_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
   private static final long EXECUTION_CREATE_CONTEXT_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
   private static final long EXECUTION_MAP_URI_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+  private static final long EXECUTION_MAP_URI_BATCH_TIMEOUT_PER_URI = 20;
   private static final long ANALYSIS_IN_TESTS_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
   private static final long TESTS_TIMEOUT_COEFF = 10;
 
@@ -146,12 +150,15 @@ public class DartAnalysisServerService implements Disposable {
   private final Map<String, Long> myFilePathWithOverlaidContentToTimestamp = new THashMap<>();
   private final List<String> myVisibleFiles = new ArrayList<>();
   private final Set<Document> myChangedDocuments = new THashSet<>();
+  // edits made to documents since their content was sent to the server last time; guarded by myLock
+  private final Map<Document, PendingEdits> myPendingEdits = new THashMap<>();
   private final Alarm myUpdateFilesAlarm;
 
   @NotNull private final Queue<CompletionInfo> myCompletionInfos = new LinkedList<>();
   @NotNull private final Queue<SearchResultsSet> mySearchResultSets = new LinkedList<>();
 
   @NotNull private final DartServerData myServerData;
+  @NotNull private final DartServerRequestCache myRequestCache = new DartServerRequestCache();
 
   private volatile boolean myAnalysisInProgress;
   private volatile boolean myPubListInProgress;
@@ -240,6 +247,9 @@ public class DartAnalysisServerService implements Disposable {
       // do nothing if errors are the same as were already handled previously
       if (oldHash == newHash && !myServerData.isErrorInfoInaccurate(filePathSI)) return;
 
+      // cached fixes for the file depend on its errors
+      myRequestCache.clear(filePathSI);
+
       final boolean visible = myVisibleFiles.contains(filePathSD);
       if (myServerData.computedErrors(filePathSI, errorsWithoutTodo, visible)) {
         onErrorsUpdated(filePathSI, errorsWithoutTodo, hasSevereProblems, newHash);
@@ -286,6 +296,7 @@ public class DartAnalysisServerService implements Disposable {
       }
 
       myServerData.onFlushedResults(filePaths);
+      myRequestCache.clear();
 
       for (String filePath : filePaths) {
         onErrorsUpdated(filePath, AnalysisError.EMPTY_LIST, false, 0);
@@ -765,6 +776,8 @@ public class DartAnalysisServerService implements Disposable {
 
         final VirtualFile file = FileDocumentManager.getInstance().getFile(e.getDocument());
         if (isLocalAnalyzableFile(file)) {
+          // cached navigation results of other files may point into this one
+          myRequestCache.clear();
           for (VirtualFile fileInEditor : FileEditorManager.getInstance(myProject).getOpenFiles()) {
             if (fileInEditor.equals(file)) {
               synchronized (myLock) {
@@ -775,8 +788,25 @@ public class DartAnalysisServerService implements Disposable {
           }
         }
 
-        myUpdateFilesAlarm.cancelAllRequests();
-        myUpdateFilesAlarm.addRequest(DartAnalysisServerService.this::updateFilesContent, UPDATE_FILES_TIMEOUT);
+        scheduleFilesContentUpdate();
+      }
+
+      @Override
+      public void documentChanged(@NotNull DocumentEvent e) {
+        if (myServer == null) return;
+
+        final VirtualFile file = FileDocumentManager.getInstance().getFile(e.getDocument());
+        if (!isLocalAnalyzableFile(file)) return;
+
+        synchronized (myLock) {
+          final PendingEdits edits = myPendingEdits.get(e.getDocument());
+          if (edits == null) {
+            myPendingEdits.put(e.getDocument(), new PendingEdits(e));
+          }
+          else {
+            edits.add(e);
+          }
+        }
       }
     };
 
@@ -926,13 +956,27 @@ public class DartAnalysisServerService implements Disposable {
 
   public void updateFilesContent() {
     if (myServer != null) {
-      ApplicationManager.getApplication().runReadAction(this::doUpdateFilesContent);
+      ApplicationManager.getApplication().runReadAction(() -> doUpdateFilesContent(false));
     }
   }
 
-  private void doUpdateFilesContent() {
-    // may be use DocumentListener to collect deltas instead of sending the whole Document.getText() each time?
+  private void scheduleFilesContentUpdate() {
+    myUpdateFilesAlarm.cancelAllRequests();
+    myUpdateFilesAlarm.addRequest(() -> {
+      if (myServer != null) {
+        ApplicationManager.getApplication().runReadAction(() -> doUpdateFilesContent(true));
+      }
+    }, UPDATE_FILES_TIMEOUT);
+  }
 
+  /**
+   * Sends overlays for changed documents. Edits collected by the DocumentListener are sent as a {@link ChangeContentOverlay}
+   * if the server already has the previous content of the document and the edits are smaller than the whole text.
+   *
+   * @param respectBudget if {@code true}, overlays are sent until {@link #UPDATE_FILES_CHARS_BUDGET} is exhausted
+   *                      and the remaining documents are sent by the next scheduled update
+   */
+  private void doUpdateFilesContent(final boolean respectBudget) {
     AnalysisServer server = myServer;
     if (server == null) {
       return;
@@ -941,6 +985,7 @@ public class DartAnalysisServerService implements Disposable {
     myUpdateFilesAlarm.cancelAllRequests();
 
     final Map<String, Object> filesToUpdate = new THashMap<>();
+    final Set<String> deferredFilePaths = new THashSet<>();
     ApplicationManager.getApplication().assertReadAccessAllowed();
     synchronized (myLock) {
       final Set<String> oldTrackedFiles = new THashSet<>(myFilePathWithOverlaidContentToTimestamp.keySet());
@@ -953,6 +998,7 @@ public class DartAnalysisServerService implements Disposable {
       myChangedDocuments.clear();
       ContainerUtil.addAll(documents, fileDocumentManager.getUnsavedDocuments());
 
+      int charsSent = 0;
       for (Document document : documents) {
         final VirtualFile file = fileDocumentManager.getFile(document);
         if (isLocalAnalyzableFile(file)) {
@@ -960,12 +1006,29 @@ public class DartAnalysisServerService implements Disposable {
 
           final Long oldTimestamp = myFilePathWithOverlaidContentToTimestamp.get(file.getPath());
           if (oldTimestamp == null || document.getModificationStamp() != oldTimestamp) {
-            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()), new AddContentOverlay(document.getText()));
+            final PendingEdits edits = myPendingEdits.get(document);
+            final boolean incremental = oldTimestamp != null && edits != null && edits.canBeAppliedTo(oldTimestamp, document);
+            final int chars = incremental ? edits.myChars : document.getTextLength();
+
+            if (respectBudget && charsSent > 0 && charsSent + chars > UPDATE_FILES_CHARS_BUDGET) {
+              // keep the document and its pending edits for the next update
+              myChangedDocuments.add(document);
+              deferredFilePaths.add(file.getPath());
+              continue;
+            }
+
+            charsSent += chars;
+            final Object overlay = incremental ? new ChangeContentOverlay(edits.myEdits) : new AddContentOverlay(document.getText());
+            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()), overlay);
             myFilePathWithOverlaidContentToTimestamp.put(file.getPath(), document.getModificationStamp());
           }
+          myPendingEdits.remove(document);
         }
       }
 
+      // pending edits of the documents that were not sent are useless: the next overlay for them will contain the full text
+      myPendingEdits.keySet().retainAll(myChangedDocuments);
+
       // oldTrackedFiles at this point contains only those files that are not in FileDocumentManager.getUnsavedDocuments() any more
       for (String oldPath : oldTrackedFiles) {
         final Long removed = myFilePathWithOverlaidContentToTimestamp.remove(oldPath);
@@ -989,7 +1052,12 @@ public class DartAnalysisServerService implements Disposable {
     }
 
     if (!filesToUpdate.isEmpty()) {
-      server.analysis_updateContent(filesToUpdate, myServerData::onFilesContentUpdated);
+      server.analysis_updateContent(filesToUpdate, () -> myServerData.onFilesContentUpdated(deferredFilePaths));
+    }
+
+    if (!deferredFilePaths.isEmpty()) {
+      LOG.debug("Overlaid content of " + deferredFilePaths.size() + " files is deferred to the next update");
+      scheduleFilesContentUpdate();
     }
   }
 
@@ -1069,51 +1137,86 @@ public class DartAnalysisServerService implements Disposable {
 
   @NotNull
   public List<HoverInformation> analysis_getHover(@NotNull final VirtualFile file, final int _offset) {
-    final String filePath = FileUtil.toSystemDependentName(file.getPath());
-    final List<HoverInformation> result = Lists.newArrayList();
-
     final AnalysisServer server = myServer;
     if (server == null) {
       return HoverInformation.EMPTY_LIST;
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
+    final List<HoverInformation> result = awaitForFutureCheckingCanceled(server, analysis_getHoverAsync(file, _offset), GET_HOVER_TIMEOUT);
+    return result != null ? result : HoverInformation.EMPTY_LIST;
+  }
+
+  /**
+   * Asynchronous version of {@link #analysis_getHover(VirtualFile, int)}, doesn't block the caller, so that several requests
+   * may be sent at once and their latencies overlap. Cancelling the returned future drops the server response when it arrives.
+   */
+  @NotNull
+  public CompletableFuture<List<HoverInformation>> analysis_getHoverAsync(@NotNull final VirtualFile file, final int _offset) {
+    final String filePath = FileUtil.toSystemDependentName(file.getPath());
+
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null) {
+      return CompletableFuture.completedFuture(HoverInformation.EMPTY_LIST);
+    }
+
+    final CompletableFuture<List<HoverInformation>> future = new CompletableFuture<>();
     final int offset = getOriginalOffset(file, _offset);
-    server.analysis_getHover(filePath, offset, new GetHoverConsumer() {
+    final GetHoverConsumer consumer = new GetHoverConsumer() {
       @Override
       public void computedHovers(HoverInformation[] hovers) {
-        Collections.addAll(result, hovers);
-        latch.countDown();
+        future.complete(Arrays.asList(hovers));
       }
 
       @Override
       public void onError(RequestError error) {
         logError("analysis_getHover()", filePath, error);
-        latch.countDown();
+        future.complete(HoverInformation.EMPTY_LIST);
       }
-    });
-
-    awaitForLatchCheckingCanceled(server, latch, GET_HOVER_TIMEOUT);
-    return result;
+    };
+    server.analysis_getHover(filePath, offset, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   @Nullable
   public List<DartServerData.DartNavigationRegion> analysis_getNavigation(@NotNull final VirtualFile file,
                                                                           final int _offset,
                                                                           final int length) {
-    final String filePath = FileUtil.toSystemDependentName(file.getPath());
-    final Ref<List<DartServerData.DartNavigationRegion>> resultRef = Ref.create();
-
     final AnalysisServer server = myServer;
     if (server == null) {
       return null;
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
+    final CompletableFuture<List<DartServerData.DartNavigationRegion>> future =
+      myRequestCache.get("analysis.getNavigation", file, _offset, length, () -> analysis_getNavigationAsync(file, _offset, length));
+    final List<DartServerData.DartNavigationRegion> result = awaitForFutureCheckingCanceled(server, future, GET_NAVIGATION_TIMEOUT);
+
+    if (future.isCancelled()) {
+      LOG.info("analysis_getNavigation() took more than " + GET_NAVIGATION_TIMEOUT + "ms for file " + file.getPath());
+    }
+
+    return result;
+  }
+
+  /**
+   * Asynchronous version of {@link #analysis_getNavigation(VirtualFile, int, int)}, doesn't block the caller.
+   * The future is completed with {@code null} if the server responds with an error.
+   */
+  @NotNull
+  public CompletableFuture<List<DartServerData.DartNavigationRegion>> analysis_getNavigationAsync(@NotNull final VirtualFile file,
+                                                                                                  final int _offset,
+                                                                                                  final int length) {
+    final String filePath = FileUtil.toSystemDependentName(file.getPath());
+
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final CompletableFuture<List<DartServerData.DartNavigationRegion>> future = new CompletableFuture<>();
     LOG.debug("analysis_getNavigation(" + filePath + ")");
 
     final int offset = getOriginalOffset(file, _offset);
-    server.analysis_getNavigation(filePath, offset, length, new GetNavigationConsumer() {
+    final GetNavigationConsumer consumer = new GetNavigationConsumer() {
       @Override
       public void computedNavigation(final List<NavigationRegion> regions) {
         final List<DartServerData.DartNavigationRegion> dartRegions = new ArrayList<>(regions.size());
@@ -1123,8 +1226,7 @@ public class DartAnalysisServerService implements Disposable {
           }
         }
 
-        resultRef.set(dartRegions);
-        latch.countDown();
+        future.complete(dartRegions);
       }
 
       @Override
@@ -1136,49 +1238,56 @@ public class DartAnalysisServerService implements Disposable {
           logError("analysis_getNavigation()", filePath, error);
         }
 
-        latch.countDown();
+        future.complete(null);
       }
-    });
-
-    awaitForLatchCheckingCanceled(server, latch, GET_NAVIGATION_TIMEOUT);
+    };
+    server.analysis_getNavigation(filePath, offset, length, consumer);
+    return discardOnCancel(server, future, consumer);
+  }
 
-    if (latch.getCount() > 0) {
-      LOG.info("analysis_getNavigation() took more than " + GET_NAVIGATION_TIMEOUT + "ms for file " + filePath);
+  @NotNull
+  public List<SourceChange> edit_getAssists(@NotNull final VirtualFile file, final int _offset, final int _length) {
+    final AnalysisServer server = myServer;
+    if (server == null) {
+      return Lists.newArrayList();
     }
 
-    return resultRef.get();
+    long timeout = ApplicationManager.getApplication().isDispatchThread() ? GET_ASSISTS_TIMEOUT_EDT : GET_ASSISTS_TIMEOUT;
+    final CompletableFuture<List<SourceChange>> future =
+      myRequestCache.get("edit.getAssists", file, _offset, _length, () -> edit_getAssistsAsync(file, _offset, _length));
+    final List<SourceChange> results = awaitForFutureCheckingCanceled(server, future, timeout);
+    return results != null ? results : Lists.newArrayList();
   }
 
+  /**
+   * Asynchronous version of {@link #edit_getAssists(VirtualFile, int, int)}, doesn't block the caller.
+   */
   @NotNull
-  public List<SourceChange> edit_getAssists(@NotNull final VirtualFile file, final int _offset, final int _length) {
+  public CompletableFuture<List<SourceChange>> edit_getAssistsAsync(@NotNull final VirtualFile file, final int _offset, final int _length) {
     final String filePath = FileUtil.toSystemDependentName(file.getPath());
-    final List<SourceChange> results = Lists.newArrayList();
 
-    final AnalysisServer server = myServer;
+    final RemoteAnalysisServerImpl server = myServer;
     if (server == null) {
-      return results;
+      return CompletableFuture.completedFuture(Lists.newArrayList());
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
+    final CompletableFuture<List<SourceChange>> future = new CompletableFuture<>();
     final int offset = getOriginalOffset(file, _offset);
     final int length = getOriginalOffset(file, _offset + _length) - offset;
-    server.edit_getAssists(filePath, offset, length, new GetAssistsConsumer() {
+    final GetAssistsConsumer consumer = new GetAssistsConsumer() {
       @Override
       public void computedSourceChanges(List<SourceChange> sourceChanges) {
-        results.addAll(sourceChanges);
-        latch.countDown();
+        future.complete(new ArrayList<>(sourceChanges));
       }
 
       @Override
       public void onError(final RequestError error) {
         logError("edit_getAssists()", filePath, error);
-        latch.countDown();
+        future.complete(Lists.newArrayList());
       }
-    });
-
-    long timeout = ApplicationManager.getApplication().isDispatchThread() ? GET_ASSISTS_TIMEOUT_EDT : GET_ASSISTS_TIMEOUT;
-    awaitForLatchCheckingCanceled(server, latch, timeout);
-    return results;
+    };
+    server.edit_getAssists(filePath, offset, length, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   public boolean edit_isPostfixCompletionApplicable(VirtualFile file, int _offset, String key) {
@@ -1318,29 +1427,47 @@ public class DartAnalysisServerService implements Disposable {
   public void askForFixesAndWaitABitIfReceivedQuickly(@NotNull final VirtualFile file,
                                                       final int _offset,
                                                       @NotNull final Consumer<? super List<AnalysisErrorFixes>> consumer) {
-    final String filePath = FileUtil.toSystemDependentName(file.getPath());
-
-    final AnalysisServer server = myServer;
+    final RemoteAnalysisServerImpl server = myServer;
     if (server == null) return;
 
     final CountDownLatch latch = new CountDownLatch(1);
+    myRequestCache.get("edit.getFixes", file, _offset, 0, () -> edit_getFixesAsync(server, file, _offset))
+      .thenAccept(fixes -> {
+        if (fixes != null) {
+          consumer.consume(fixes);
+        }
+      })
+      .whenComplete((result, throwable) -> latch.countDown());
+
+    long timeout = ApplicationManager.getApplication().isDispatchThread() ? GET_FIXES_TIMEOUT_EDT : GET_FIXES_TIMEOUT;
+    awaitForLatchCheckingCanceled(server, latch, timeout);
+  }
+
+  /**
+   * The future is completed with {@code null} if the server responds with an error.
+   */
+  @NotNull
+  private CompletableFuture<List<AnalysisErrorFixes>> edit_getFixesAsync(@NotNull final RemoteAnalysisServerImpl server,
+                                                                         @NotNull final VirtualFile file,
+                                                                         final int _offset) {
+    final String filePath = FileUtil.toSystemDependentName(file.getPath());
+
+    final CompletableFuture<List<AnalysisErrorFixes>> future = new CompletableFuture<>();
     final int offset = getOriginalOffset(file, _offset);
-    server.edit_getFixes(filePath, offset, new GetFixesConsumer() {
+    final GetFixesConsumer consumer = new GetFixesConsumer() {
       @Override
       public void computedFixes(final List<AnalysisErrorFixes> fixes) {
-        consumer.consume(fixes);
-        latch.countDown();
+        future.complete(fixes);
       }
 
       @Override
       public void onError(final RequestError error) {
         logError("edit_getFixes()", filePath, error);
-        latch.countDown();
+        future.complete(null);
       }
-    });
-
-    long timeout = ApplicationManager.getApplication().isDispatchThread() ? GET_FIXES_TIMEOUT_EDT : GET_FIXES_TIMEOUT;
-    awaitForLatchCheckingCanceled(server, latch, timeout);
+    };
+    server.edit_getFixes(filePath, offset, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   public void search_findElementReferences(@NotNull final VirtualFile file,
@@ -1405,32 +1532,46 @@ public class DartAnalysisServerService implements Disposable {
 
   @NotNull
   public List<TypeHierarchyItem> search_getTypeHierarchy(@NotNull final VirtualFile file, final int _offset, final boolean superOnly) {
+    final AnalysisServer server = myServer;
+    if (server == null) {
+      return Lists.newArrayList();
+    }
+
+    final List<TypeHierarchyItem> results =
+      awaitForFutureCheckingCanceled(server, search_getTypeHierarchyAsync(file, _offset, superOnly), GET_TYPE_HIERARCHY_TIMEOUT);
+    return results != null ? results : Lists.newArrayList();
+  }
+
+  /**
+   * Asynchronous version of {@link #search_getTypeHierarchy(VirtualFile, int, boolean)}, doesn't block the caller.
+   */
+  @NotNull
+  public CompletableFuture<List<TypeHierarchyItem>> search_getTypeHierarchyAsync(@NotNull final VirtualFile file,
+                                                                                  final int _offset,
+                                                                                  final boolean superOnly) {
     final String filePath = FileUtil.toSystemDependentName(file.getPath());
-    final List<TypeHierarchyItem> results = Lists.newArrayList();
 
-    final AnalysisServer server = myServer;
+    final RemoteAnalysisServerImpl server = myServer;
     if (server == null) {
-      return results;
+      return CompletableFuture.completedFuture(Lists.newArrayList());
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
+    final CompletableFuture<List<TypeHierarchyItem>> future = new CompletableFuture<>();
     final int offset = getOriginalOffset(file, _offset);
-    server.search_getTypeHierarchy(filePath, offset, superOnly, new GetTypeHierarchyConsumer() {
+    final GetTypeHierarchyConsumer consumer = new GetTypeHierarchyConsumer() {
       @Override
       public void computedHierarchy(List<TypeHierarchyItem> hierarchyItems) {
-        results.addAll(hierarchyItems);
-        latch.countDown();
+        future.complete(new ArrayList<>(hierarchyItems));
       }
 
       @Override
       public void onError(RequestError error) {
         logError("search_getTypeHierarchy()", filePath, error);
-        latch.countDown();
+        future.complete(Lists.newArrayList());
       }
-    });
-
-    awaitForLatchCheckingCanceled(server, latch, GET_TYPE_HIERARCHY_TIMEOUT);
-    return results;
+    };
+    server.search_getTypeHierarchy(filePath, offset, superOnly, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   @Nullable
@@ -1438,31 +1579,46 @@ public class DartAnalysisServerService implements Disposable {
                                                                     final int id,
                                                                     final String label,
                                                                     final int _offset) {
-    final String filePath = FileUtil.toSystemDependentName(file.getPath());
-    final Ref<GetCompletionDetailsResult> resultRef = new Ref<>();
-
     final AnalysisServer server = myServer;
     if (server == null) {
       return null;
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
+    return awaitForFutureCheckingCanceled(server, completion_getSuggestionDetailsAsync(file, id, label, _offset),
+                                          GET_SUGGESTION_DETAILS_TIMEOUT);
+  }
+
+  /**
+   * Asynchronous version of {@link #completion_getSuggestionDetails(VirtualFile, int, String, int)}, doesn't block the caller.
+   * The future is completed with {@code null} if the server responds with an error.
+   */
+  @NotNull
+  public CompletableFuture<GetCompletionDetailsResult> completion_getSuggestionDetailsAsync(@NotNull final VirtualFile file,
+                                                                                            final int id,
+                                                                                            final String label,
+                                                                                            final int _offset) {
+    final String filePath = FileUtil.toSystemDependentName(file.getPath());
+
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final CompletableFuture<GetCompletionDetailsResult> future = new CompletableFuture<>();
     final int offset = getOriginalOffset(file, _offset);
-    server.completion_getSuggestionDetails(filePath, id, label, offset, new GetSuggestionDetailsConsumer() {
+    final GetSuggestionDetailsConsumer consumer = new GetSuggestionDetailsConsumer() {
       @Override
       public void computedDetails(GetCompletionDetailsResult result) {
-        resultRef.set(result);
-        latch.countDown();
+        future.complete(result);
       }
 
       @Override
       public void onError(RequestError requestError) {
-        latch.countDown();
+        future.complete(null);
       }
-    });
-
-    awaitForLatchCheckingCanceled(server, latch, GET_SUGGESTION_DETAILS_TIMEOUT);
-    return resultRef.get();
+    };
+    server.completion_getSuggestionDetails(filePath, id, label, offset, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   @Nullable
@@ -1847,45 +2003,105 @@ public class DartAnalysisServerService implements Disposable {
       return null;
     }
 
-    final String filePath = _filePath != null ? FileUtil.toSystemDependentName(_filePath) : null;
-    final Ref<String> resultRef = new Ref<>();
-
     final AnalysisServer server = myServer;
     if (server == null) return null;
 
-    final CountDownLatch latch = new CountDownLatch(1);
-    server.execution_mapUri(_id, filePath, _uri, new MapUriConsumer() {
+    final CompletableFuture<String> future = execution_mapUriAsync(_id, _filePath, _uri);
+    final String result = awaitForFutureCheckingCanceled(server, future, EXECUTION_MAP_URI_TIMEOUT);
+
+    if (!future.isDone() || future.isCancelled()) {
+      LOG.info("execution_mapUri() took too long for contextID " + _id + " and file or uri " + (_filePath != null ? _filePath : _uri));
+      return null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Maps all {@code uris} to file paths at once: all requests are sent before waiting for the first response,
+   * so the total time is close to the time of a single round trip rather than the sum of them.
+   *
+   * @return uri to file path map; uris that failed to map or were not mapped in time are absent
+   */
+  @NotNull
+  public Map<String, String> execution_mapUris(@NotNull final String _id, @NotNull final Collection<String> uris) {
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null || uris.isEmpty()) return Collections.emptyMap();
+
+    final Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+    for (String uri : uris) {
+      futures.put(uri, execution_mapUriAsync(_id, null, uri));
+    }
+
+    final CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+    try {
+      awaitForFutureCheckingCanceled(server, all, EXECUTION_MAP_URI_TIMEOUT + uris.size() * EXECUTION_MAP_URI_BATCH_TIMEOUT_PER_URI);
+    }
+    finally {
+      // not completed in time or the wait was canceled: responses to these requests will be discarded
+      for (CompletableFuture<String> future : futures.values()) {
+        future.cancel(false);
+      }
+    }
+
+    final Map<String, String> result = new THashMap<>();
+    int notMappedInTime = 0;
+    for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
+      final CompletableFuture<String> future = entry.getValue();
+      if (!future.isCancelled()) {
+        final String filePath = future.getNow(null);
+        if (filePath != null) {
+          result.put(entry.getKey(), filePath);
+        }
+      }
+      else {
+        notMappedInTime++;
+      }
+    }
+
+    if (notMappedInTime > 0) {
+      LOG.info("execution_mapUris() took too long for contextID " + _id + ", " + notMappedInTime + " of " + uris.size() + " uris not mapped");
+    }
+
+    return result;
+  }
+
+  /**
+   * Asynchronous version of {@link #execution_mapUri(String, String, String)}. The future is completed with {@code null} on error.
+   * If {@code _uri} is given then the result is a system-independent file path.
+   */
+  @NotNull
+  public CompletableFuture<String> execution_mapUriAsync(@NotNull final String _id,
+                                                         @Nullable final String _filePath,
+                                                         @Nullable final String _uri) {
+    final String filePath = _filePath != null ? FileUtil.toSystemDependentName(_filePath) : null;
+
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final CompletableFuture<String> future = new CompletableFuture<>();
+    final MapUriConsumer consumer = new MapUriConsumer() {
       @Override
       public void computedFileOrUri(final String file, final String uri) {
         if (uri != null) {
-          resultRef.set(uri);
+          future.complete(uri);
         }
         else {
-          resultRef.set(file);
+          future.complete(file != null && _uri != null ? FileUtil.toSystemIndependentName(file) : file);
         }
-        latch.countDown();
       }
 
       @Override
       public void onError(final RequestError error) {
         LOG.warn(
           "execution_mapUri(" + _id + ", " + filePath + ", " + _uri + ") returned error " + error.getCode() + ": " + error.getMessage());
-        latch.countDown();
+        future.complete(null);
       }
-    });
-
-    awaitForLatchCheckingCanceled(server, latch, EXECUTION_MAP_URI_TIMEOUT);
-
-    if (latch.getCount() > 0) {
-      LOG.info("execution_mapUri() took too long for contextID " + _id + " and file or uri " + (filePath != null ? filePath : _uri));
-      return null;
-    }
-
-    if (_uri != null && !resultRef.isNull()) {
-      return FileUtil.toSystemIndependentName(resultRef.get());
-    }
-
-    return resultRef.get();
+    };
+    server.execution_mapUri(_id, filePath, _uri, consumer);
+    return discardOnCancel(server, future, consumer);
   }
 
   private void startServer(@NotNull final DartSdk sdk) {
@@ -2110,7 +2326,9 @@ public class DartAnalysisServerService implements Disposable {
       myFilePathWithOverlaidContentToTimestamp.clear();
       myVisibleFiles.clear();
       myChangedDocuments.clear();
+      myPendingEdits.clear();
       myServerData.clearData();
+      myRequestCache.clear();
       myRootsHandler.reset();
 
       if (myProject.isOpen() && !myProject.isDisposed()) {
@@ -2218,6 +2436,49 @@ public class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * Waits for the future the same way as {@link #awaitForLatchCheckingCanceled(AnalysisServer, CountDownLatch, long)} does.
+   * If the future is not completed in time, or waiting is canceled, the future is cancelled.
+   *
+   * @return the result of the future or {@code null} if it is not completed in time
+   */
+  @Nullable
+  private static <T> T awaitForFutureCheckingCanceled(@NotNull final AnalysisServer server,
+                                                      @NotNull final CompletableFuture<T> future,
+                                                      final long timeoutInMillis) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    future.whenComplete((result, throwable) -> latch.countDown());
+
+    boolean completed = false;
+    try {
+      completed = awaitForLatchCheckingCanceled(server, latch, timeoutInMillis);
+    }
+    finally {
+      if (!completed) {
+        future.cancel(false);
+      }
+    }
+
+    return completed && !future.isCancelled() ? future.getNow(null) : null;
+  }
+
+  /**
+   * Cancelling the returned future stops waiting for the server response: the server has no request cancellation,
+   * so the response is dropped on arrival and the {@code consumer} is not called.
+   * Several futures may be in flight at the same time, the server processes pipelined requests in order.
+   */
+  @NotNull
+  private static <T> CompletableFuture<T> discardOnCancel(@NotNull final RemoteAnalysisServerImpl server,
+                                                          @NotNull final CompletableFuture<T> future,
+                                                          @NotNull final com.google.dart.server.Consumer consumer) {
+    future.whenComplete((result, throwable) -> {
+      if (future.isCancelled()) {
+        server.discardConsumer(consumer);
+      }
+    });
+    return future;
+  }
+
   private void registerPostfixCompletionTemplates() {
     ApplicationManager.getApplication().executeOnPooledThread(() -> DartPostfixTemplateProvider.initializeTemplates(this));
   }
@@ -2303,6 +2564,45 @@ public class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * Edits made to a document since a known modification stamp, in the order they must be applied.
+   */
+  private static class PendingEdits {
+    private final long myBaseTimestamp;
+    private final List<SourceEdit> myEdits = new ArrayList<>();
+    private long myLastTimestamp;
+    private int myChars;
+    private boolean myBroken;
+
+    private PendingEdits(@NotNull final DocumentEvent e) {
+      myBaseTimestamp = e.getOldTimeStamp();
+      add(e);
+    }
+
+    private void add(@NotNull final DocumentEvent e) {
+      if (myBroken) return;
+
+      // a missed event or too many edits: the full text is cheaper to send and to apply
+      if ((!myEdits.isEmpty() && e.getOldTimeStamp() != myLastTimestamp) ||
+          myChars > e.getDocument().getTextLength()) {
+        myBroken = true;
+        myEdits.clear();
+        return;
+      }
+
+      myEdits.add(new SourceEdit(e.getOffset(), e.getOldLength(), e.getNewFragment().toString(), null));
+      myChars += e.getNewLength() + 16;
+      myLastTimestamp = e.getDocument().getModificationStamp();
+    }
+
+    private boolean canBeAppliedTo(final long serverTimestamp, @NotNull final Document document) {
+      return !myBroken &&
+             myBaseTimestamp == serverTimestamp &&
+             myLastTimestamp == document.getModificationStamp() &&
+             myChars < document.getTextLength();
+    }
+  }
+
   /**
    * A set of {@link SearchResult}s.
    */
@@ -2371,11 +2671,38 @@ public class DartAnalysisServerService implements Disposable {
           log.append(s).append('\n');
         }
       }
+      log.append(myRequestCache).append('\n');
       log.append("```\n");
       return log.toString();
     }
   }
 
+  /**
+   * Request counts and latencies, notification volumes and queue depths of the analysis server connection,
+   * or {@code null} if the server is not running.
+   */
+  @Nullable
+  public String getProtocolMetricsReport() {
+    final RemoteAnalysisServerImpl server = myServer;
+    if (server == null) return null;
+
+    return server.getProtocolMetricsReport() + "\n" + myRequestCache + "\n";
+  }
+
+  /**
+   * Number of analysis server queries answered from the cache or joined to an identical in-flight query, for diagnostics.
+   */
+  public long getRequestCacheHitCount() {
+    return myRequestCache.getHitCount();
+  }
+
+  /**
+   * Number of analysis server queries that had to be sent to the server, for diagnostics.
+   */
+  public long getRequestCacheMissCount() {
+    return myRequestCache.getMissCount();
+  }
+
   public void addOutlineListener(@NotNull final DartServerData.OutlineListener listener) {
     myServerData.addOutlineListener(listener);
   }
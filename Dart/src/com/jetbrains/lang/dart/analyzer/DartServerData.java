@@ -15,14 +15,17 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.impl.PsiModificationTrackerImpl;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
 import com.intellij.psi.search.SearchScope;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.EventDispatcher;
 import com.intellij.util.SmartList;
-import gnu.trove.THashMap;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.TObjectIntHashMap;
 import org.dartlang.analysis.server.protocol.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 public class DartServerData {
 
@@ -34,15 +37,19 @@ public class DartServerData {
 
   private final EventDispatcher<OutlineListener> myEventDispatcher = EventDispatcher.create(OutlineListener.class);
 
-  private final Map<String, List<DartError>> myErrorData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartHighlightRegion>> myHighlightData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartNavigationRegion>> myNavigationData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartOverrideMember>> myOverrideData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedClassData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedMemberData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, Outline> myOutlineData = Collections.synchronizedMap(new THashMap<>());
-  private final Map<Integer, AvailableSuggestionSet> myAvailableSuggestionSetMap = Collections.synchronizedMap(new THashMap<>());
-  private final Map<String, Map<String, Map<String, Set<String>>>> myExistingImports = Collections.synchronizedMap(new THashMap<>());
+  // Readers never block: lists are published to these maps only once they are complete, and a document change
+  // publishes an updated copy of the list, in which shifted regions and navigation targets are copies as well,
+  // so neither lists nor regions that readers may be using are ever modified.
+  // The only exception is DartHighlightRegionList, which is read and updated under read and write actions respectively.
+  private final ConcurrentMap<String, List<DartError>> myErrorData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, DartHighlightRegionList> myHighlightData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartNavigationRegion>> myNavigationData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartOverrideMember>> myOverrideData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartRegion>> myImplementedClassData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, List<DartRegion>> myImplementedMemberData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, Outline> myOutlineData = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<Integer, AvailableSuggestionSet> myAvailableSuggestionSetMap = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, Map<String, Map<String, Set<String>>>> myExistingImports = ContainerUtil.newConcurrentMap();
 
   private final Set<String> myFilePathsWithUnsentChanges = Sets.newConcurrentHashSet();
 
@@ -92,14 +99,14 @@ public class DartServerData {
   void computedHighlights(@NotNull final String filePath, @NotNull final List<HighlightRegion> regions) {
     if (myFilePathsWithUnsentChanges.contains(filePath)) return;
 
-    final List<DartHighlightRegion> newRegions = new ArrayList<>(regions.size());
+    final DartHighlightRegionList newRegions = new DartHighlightRegionList(regions.size());
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
 
     for (HighlightRegion region : regions) {
       if (region.getLength() > 0) {
         final int offset = myService.getConvertedOffset(file, region.getOffset());
         final int length = myService.getConvertedOffset(file, region.getOffset() + region.getLength()) - offset;
-        newRegions.add(new DartHighlightRegion(offset, length, region.getType()));
+        newRegions.add(offset, length, region.getType());
       }
     }
 
@@ -112,10 +119,12 @@ public class DartServerData {
 
     final List<DartNavigationRegion> newRegions = new ArrayList<>(regions.size());
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
+    // regions of a file refer to the same targets many times, share DartNavigationTarget instances between them
+    final Map<NavigationTarget, DartNavigationTarget> targetTable = new IdentityHashMap<>();
 
     for (NavigationRegion region : regions) {
       if (region.getLength() > 0) {
-        final DartNavigationRegion dartNavigationRegion = createDartNavigationRegion(myService, file, region);
+        final DartNavigationRegion dartNavigationRegion = createDartNavigationRegion(myService, file, region, targetTable);
         newRegions.add(dartNavigationRegion);
       }
     }
@@ -155,11 +164,23 @@ public class DartServerData {
   static DartNavigationRegion createDartNavigationRegion(@NotNull final DartAnalysisServerService service,
                                                          @Nullable final VirtualFile file,
                                                          @NotNull final NavigationRegion region) {
+    return createDartNavigationRegion(service, file, region, null);
+  }
+
+  /**
+   * @param targetTable if not {@code null}, {@link DartNavigationTarget} instances are taken from this table and added to it,
+   *                    so that regions created with the same table share equal targets
+   */
+  @NotNull
+  private static DartNavigationRegion createDartNavigationRegion(@NotNull final DartAnalysisServerService service,
+                                                                 @Nullable final VirtualFile file,
+                                                                 @NotNull final NavigationRegion region,
+                                                                 @Nullable final Map<NavigationTarget, DartNavigationTarget> targetTable) {
     final int offset = service.getConvertedOffset(file, region.getOffset());
     final int length = service.getConvertedOffset(file, region.getOffset() + region.getLength()) - offset;
     final SmartList<DartNavigationTarget> targets = new SmartList<>();
     for (NavigationTarget target : region.getTargetObjects()) {
-      targets.add(new DartNavigationTarget(target));
+      targets.add(targetTable != null ? targetTable.computeIfAbsent(target, DartNavigationTarget::new) : new DartNavigationTarget(target));
     }
     return new DartNavigationRegion(offset, length, targets);
   }
@@ -225,12 +246,11 @@ public class DartServerData {
   List<DartError> getErrors(@NotNull final SearchScope scope) {
     final List<DartError> errors = new ArrayList<>();
 
-    synchronized (myErrorData) {
-      for (Map.Entry<String, List<DartError>> entry : myErrorData.entrySet()) {
-        final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(entry.getKey());
-        if (file != null && scope.contains(file)) {
-          errors.addAll(entry.getValue());
-        }
+    // weakly consistent iteration, concurrent updates of other files neither block nor break it
+    for (Map.Entry<String, List<DartError>> entry : myErrorData.entrySet()) {
+      final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(entry.getKey());
+      if (file != null && scope.contains(file)) {
+        errors.addAll(entry.getValue());
       }
     }
 
@@ -245,7 +265,7 @@ public class DartServerData {
 
   @NotNull
   List<DartHighlightRegion> getHighlight(@NotNull final VirtualFile file) {
-    final List<DartHighlightRegion> regions = myHighlightData.get(file.getPath());
+    final DartHighlightRegionList regions = myHighlightData.get(file.getPath());
     return regions != null ? regions : Collections.emptyList();
   }
 
@@ -317,8 +337,16 @@ public class DartServerData {
     }
   }
 
-  void onFilesContentUpdated() {
-    myFilePathsWithUnsentChanges.clear();
+  /**
+   * @param stillUnsentFilePaths files which changes have not been sent yet, because they are deferred to the next update
+   */
+  void onFilesContentUpdated(@NotNull final Set<String> stillUnsentFilePaths) {
+    if (stillUnsentFilePaths.isEmpty()) {
+      myFilePathsWithUnsentChanges.clear();
+    }
+    else {
+      myFilePathsWithUnsentChanges.retainAll(stillUnsentFilePaths);
+    }
   }
 
   void onFileClosed(@NotNull final VirtualFile file) {
@@ -387,49 +415,61 @@ public class DartServerData {
     final String filePath = file.getPath();
     myFilePathsWithUnsentChanges.add(filePath);
 
-    boolean regionsUpdated = updateRegionsDeletingTouched(filePath, myErrorData.get(filePath), e);
+    boolean regionsUpdated = updateRegionsDeletingTouched(filePath, myErrorData, e);
     if (regionsUpdated) {
       myFilePathsWithInaccurateErrorInfo.add(filePath);
     }
-    updateRegionsUpdatingTouched(myHighlightData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myNavigationData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myOverrideData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedClassData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedMemberData.get(filePath), e);
+    final DartHighlightRegionList highlightRegions = myHighlightData.get(filePath);
+    if (highlightRegions != null) {
+      highlightRegions.updateRegionsUpdatingTouched(e);
+    }
+    updateNavigationTargets(filePath, myNavigationData, e);
+    updateRegionsDeletingTouched(filePath, myNavigationData, e);
+    updateRegionsDeletingTouched(filePath, myOverrideData, e);
+    updateRegionsDeletingTouched(filePath, myImplementedClassData, e);
+    updateRegionsDeletingTouched(filePath, myImplementedMemberData, e);
     // A bit outdated outline data is not a big problem, updated data will come shortly
   }
 
   /**
+   * Updates a copy of the {@code filePath} regions and publishes it, unless the server has published newer regions meanwhile.
+   *
    * @return {@code true} if at least one region has been updated or deleted, {@code false} if nothing done at all
    */
-  private static boolean updateRegionsDeletingTouched(@NotNull final String filePath,
-                                                      @Nullable final List<? extends DartRegion> regions,
-                                                      @NotNull final DocumentEvent e) {
-    if (regions == null) return false;
+  private static <T extends DartRegion> boolean updateRegionsDeletingTouched(@NotNull final String filePath,
+                                                                             @NotNull final ConcurrentMap<String, List<T>> regionsMap,
+                                                                             @NotNull final DocumentEvent e) {
+    final List<T> regions = regionsMap.get(filePath);
+    if (regions == null || regions.isEmpty()) return false;
 
+    final List<T> updatedRegions = new ArrayList<>(regions);
+    if (!updateRegionsDeletingTouched(updatedRegions, e)) return false;
+
+    regionsMap.replace(filePath, regions, updatedRegions);
+    return true;
+  }
+
+  /**
+   * Shifted regions are replaced with their copies, the original ones may be in use by readers.
+   *
+   * @return {@code true} if at least one region has been updated or deleted, {@code false} if nothing done at all
+   */
+  private static <T extends DartRegion> boolean updateRegionsDeletingTouched(@NotNull final List<T> regions,
+                                                                             @NotNull final DocumentEvent e) {
     boolean regionUpdated = false;
 
     // delete touched regions, shift untouched
     final int eventOffset = e.getOffset();
     final int deltaLength = e.getNewLength() - e.getOldLength();
 
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
+    final ListIterator<T> iterator = regions.listIterator();
     while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (region instanceof DartNavigationRegion) {
-        // may be we'd better delete target touched by editing?
-        for (DartNavigationTarget target : ((DartNavigationRegion)region).getTargets()) {
-          if (target.myFile.equals(filePath) && target.myConvertedOffset >= eventOffset) {
-            target.myConvertedOffset += deltaLength;
-          }
-        }
-      }
+      final T region = iterator.next();
 
       if (deltaLength > 0) {
         // Something was typed. Shift untouched regions, delete touched.
         if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
+          iterator.set(copyWithOffset(region, region.myOffset + deltaLength));
           regionUpdated = true;
         }
         else if (eventOffset < region.myOffset + region.myLength) {
@@ -442,7 +482,7 @@ public class DartServerData {
         final int eventRightOffset = eventOffset - deltaLength;
 
         if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
+          iterator.set(copyWithOffset(region, region.myOffset + deltaLength));
           regionUpdated = true;
         }
         else if (eventOffset < region.myOffset + region.myLength) {
@@ -455,45 +495,53 @@ public class DartServerData {
     return regionUpdated;
   }
 
-  private static void updateRegionsUpdatingTouched(@Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
+  @NotNull
+  private static <T extends DartRegion> T copyWithOffset(@NotNull final T region, final int offset) {
+    @SuppressWarnings("unchecked") final T copy = (T)region.copy();
+    copy.myOffset = offset;
+    return copy;
+  }
+
+  /**
+   * Navigation targets are shared between regions, so each of them is copied with a shifted offset exactly once,
+   * and regions referring to shifted targets are copied with the new targets. The updated list is published like in
+   * {@link #updateRegionsDeletingTouched(String, ConcurrentMap, DocumentEvent)}.
+   */
+  private static void updateNavigationTargets(@NotNull final String filePath,
+                                              @NotNull final ConcurrentMap<String, List<DartNavigationRegion>> regionsMap,
+                                              @NotNull final DocumentEvent e) {
+    final List<DartNavigationRegion> regions = regionsMap.get(filePath);
+    if (regions == null || regions.isEmpty()) return;
 
     final int eventOffset = e.getOffset();
     final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, update touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          region.myLength += deltaLength;
+    if (deltaLength == 0) return;
+
+    final Map<DartNavigationTarget, DartNavigationTarget> shiftedTargets = new IdentityHashMap<>();
+    final List<DartNavigationRegion> updatedRegions = new ArrayList<>(regions.size());
+    for (DartNavigationRegion region : regions) {
+      List<DartNavigationTarget> updatedTargets = null;
+      final List<DartNavigationTarget> targets = region.getTargets();
+      for (int i = 0; i < targets.size(); i++) {
+        final DartNavigationTarget target = targets.get(i);
+        // may be we'd better delete target touched by editing?
+        if (target.myFile.equals(filePath) && target.myConvertedOffset >= eventOffset) {
+          if (updatedTargets == null) {
+            updatedTargets = new ArrayList<>(targets);
+          }
+          updatedTargets.set(i, shiftedTargets.computeIfAbsent(
+            target, t -> new DartNavigationTarget(t, t.myConvertedOffset + deltaLength)));
         }
       }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete or update touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-        final int regionRightOffset = region.myOffset + region.myLength;
+      updatedRegions.add(updatedTargets == null ? region : new DartNavigationRegion(region.myOffset, region.myLength, updatedTargets));
+    }
 
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
-          region.myLength += deltaLength;
-        }
-        else if (eventOffset < regionRightOffset) {
-          iterator.remove();
-        }
-      }
+    if (!shiftedTargets.isEmpty()) {
+      regionsMap.replace(filePath, regions, updatedRegions);
     }
   }
 
-  public static class DartRegion {
+  public static class DartRegion implements Cloneable {
     protected int myOffset;
     protected int myLength;
 
@@ -502,6 +550,16 @@ public class DartServerData {
       myLength = length;
     }
 
+    @NotNull
+    DartRegion copy() {
+      try {
+        return (DartRegion)clone();
+      }
+      catch (CloneNotSupportedException e) {
+        throw new AssertionError(e);
+      }
+    }
+
     public final int getOffset() {
       return myOffset;
     }
@@ -526,7 +584,7 @@ public class DartServerData {
 
     private DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
       super(offset, length);
-      this.type = type.intern();
+      this.type = type;
     }
 
     public String getType() {
@@ -534,6 +592,119 @@ public class DartServerData {
     }
   }
 
+  /**
+   * Compact storage of the highlight regions of one file. Offsets, lengths and type ids are kept in primitive arrays,
+   * {@link DartHighlightRegion} objects are created only when the list is read.
+   * Modifications to the returned {@link DartHighlightRegion} objects are not reflected in the list.
+   */
+  static class DartHighlightRegionList extends AbstractList<DartHighlightRegion> {
+    // Highlight types are a small fixed set of strings, so they are shared by all files
+    private static final TObjectIntHashMap<String> ourTypeIds = new TObjectIntHashMap<>();
+    private static volatile String[] ourTypes = ArrayUtil.EMPTY_STRING_ARRAY;
+
+    private int[] myOffsets;
+    private int[] myLengths;
+    private short[] myTypeIds;
+    private int mySize;
+
+    DartHighlightRegionList(final int initialCapacity) {
+      myOffsets = new int[initialCapacity];
+      myLengths = new int[initialCapacity];
+      myTypeIds = new short[initialCapacity];
+    }
+
+    void add(final int offset, final int length, @NotNull final String type) {
+      if (mySize == myOffsets.length) {
+        final int newCapacity = Math.max(8, mySize * 3 / 2);
+        myOffsets = Arrays.copyOf(myOffsets, newCapacity);
+        myLengths = Arrays.copyOf(myLengths, newCapacity);
+        myTypeIds = Arrays.copyOf(myTypeIds, newCapacity);
+      }
+      myOffsets[mySize] = offset;
+      myLengths[mySize] = length;
+      myTypeIds[mySize] = getTypeId(type);
+      mySize++;
+    }
+
+    @Override
+    public DartHighlightRegion get(final int index) {
+      if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mySize);
+      return new DartHighlightRegion(myOffsets[index], myLengths[index], getType(myTypeIds[index]));
+    }
+
+    @Override
+    public int size() {
+      return mySize;
+    }
+
+    /**
+     * Shifts untouched regions and updates or deletes touched ones in place.
+     */
+    void updateRegionsUpdatingTouched(@NotNull final DocumentEvent e) {
+      final int eventOffset = e.getOffset();
+      final int deltaLength = e.getNewLength() - e.getOldLength();
+      if (deltaLength == 0) return;
+
+      int newSize = 0;
+      for (int i = 0; i < mySize; i++) {
+        int offset = myOffsets[i];
+        int length = myLengths[i];
+
+        if (deltaLength > 0) {
+          // Something was typed. Shift untouched regions, update touched.
+          if (eventOffset <= offset) {
+            offset += deltaLength;
+          }
+          else if (eventOffset < offset + length) {
+            length += deltaLength;
+          }
+        }
+        else {
+          // Some text was deleted. Shift untouched regions, delete or update touched.
+          final int eventRightOffset = eventOffset - deltaLength;
+          final int regionRightOffset = offset + length;
+
+          if (eventRightOffset <= offset) {
+            offset += deltaLength;
+          }
+          else if (offset <= eventOffset && eventRightOffset <= regionRightOffset && length != -deltaLength) {
+            length += deltaLength;
+          }
+          else if (eventOffset < regionRightOffset) {
+            continue; // delete
+          }
+        }
+
+        myOffsets[newSize] = offset;
+        myLengths[newSize] = length;
+        myTypeIds[newSize] = myTypeIds[i];
+        newSize++;
+      }
+
+      if (newSize != mySize) {
+        mySize = newSize;
+        modCount++;
+      }
+    }
+
+    private static short getTypeId(@NotNull final String type) {
+      synchronized (ourTypeIds) {
+        if (ourTypeIds.containsKey(type)) {
+          return (short)ourTypeIds.get(type);
+        }
+        final int id = ourTypes.length;
+        ourTypes = ArrayUtil.append(ourTypes, type.intern());
+        ourTypeIds.put(type, id);
+        return (short)id;
+      }
+    }
+
+    @NotNull
+    private static String getType(final short typeId) {
+      return ourTypes[typeId];
+    }
+  }
+
   public static class DartError extends DartRegion {
     @NotNull private final String myAnalysisErrorFileSD;
     @NotNull private final String mySeverity;
@@ -618,6 +789,13 @@ public class DartServerData {
       myKind = target.getKind().intern();
     }
 
+    private DartNavigationTarget(@NotNull final DartNavigationTarget target, final int convertedOffset) {
+      myFile = target.myFile;
+      myOriginalOffset = target.myOriginalOffset;
+      myKind = target.myKind;
+      myConvertedOffset = convertedOffset;
+    }
+
     public String getFile() {
       return myFile;
     }
@@ -0,0 +1,205 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Small bounded cache of analysis server query results, such as navigation, assists or fixes at the caret.
+ * Entries are keyed by request kind, file, offset, length and the modification stamp of the file document.
+ * Results may refer to other files, so the owner clears the whole cache when a document changes or the server flushes its results;
+ * when errors of a file change, only the entries for that file are cleared.
+ * An identical query that comes while the first one is still in flight joins it, so only one request is sent to the server;
+ * the request is cancelled when all callers waiting for it have cancelled their futures.
+ */
+class DartServerRequestCache {
+  private static final int MAX_SIZE = 64;
+
+  // guarded by itself
+  private final Map<Key, Entry<?>> myCache = new LinkedHashMap<Key, Entry<?>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Entry<?>> eldest) {
+      return size() > MAX_SIZE;
+    }
+  };
+
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+
+  private static final class Entry<T> {
+    private final CompletableFuture<List<T>> future = new CompletableFuture<>();
+    // guarded by myCache
+    @Nullable private CompletableFuture<List<T>> request;
+    private int dependents;
+  }
+
+  /**
+   * Returns a future for the cached or in-flight result of the query, or sends the query using {@code requestSender}.
+   * Results completed with {@code null} (server errors), exceptionally or cancelled are not kept in the cache.
+   * Each caller gets its own future with an unmodifiable copy of the result; cancelling it cancels the request only
+   * if no other caller is waiting for the same query.
+   */
+  @NotNull
+  <T> CompletableFuture<List<T>> get(@NotNull final String requestKind,
+                                     @NotNull final VirtualFile file,
+                                     final int offset,
+                                     final int length,
+                                     @NotNull final Supplier<CompletableFuture<List<T>>> requestSender) {
+    final Key key = new Key(requestKind, file.getPath(), offset, length, getModificationStamp(file));
+
+    Entry<T> entry;
+    synchronized (myCache) {
+      //noinspection unchecked
+      entry = (Entry<T>)myCache.get(key);
+      if (entry != null && !entry.future.isCompletedExceptionally()) {
+        myHits.incrementAndGet();
+        entry.dependents++;
+        return createDependent(key, entry);
+      }
+
+      myMisses.incrementAndGet();
+      entry = new Entry<>();
+      entry.dependents = 1;
+      myCache.put(key, entry);
+    }
+
+    final Entry<T> newEntry = entry;
+    newEntry.future.whenComplete((result, throwable) -> {
+      if (result == null || throwable != null) {
+        synchronized (myCache) {
+          myCache.remove(key, newEntry);
+        }
+      }
+    });
+    final CompletableFuture<List<T>> dependent = createDependent(key, newEntry);
+
+    // the request is sent outside of the lock, its result is forwarded to the shared future
+    final CompletableFuture<List<T>> request = requestSender.get();
+    synchronized (myCache) {
+      newEntry.request = request;
+    }
+    if (newEntry.future.isCancelled()) {
+      // all callers have given up before the request was sent
+      request.cancel(false);
+    }
+    request.whenComplete((result, throwable) -> {
+      if (throwable != null) {
+        newEntry.future.completeExceptionally(throwable);
+      }
+      else {
+        newEntry.future.complete(result);
+      }
+    });
+
+    return dependent;
+  }
+
+  @NotNull
+  private <T> CompletableFuture<List<T>> createDependent(@NotNull final Key key, @NotNull final Entry<T> entry) {
+    final CompletableFuture<List<T>> dependent =
+      entry.future.thenApply(result -> result == null ? null : Collections.unmodifiableList(new ArrayList<>(result)));
+    dependent.whenComplete((result, throwable) -> {
+      if (dependent.isCancelled()) {
+        dependentCancelled(key, entry);
+      }
+    });
+    return dependent;
+  }
+
+  private <T> void dependentCancelled(@NotNull final Key key, @NotNull final Entry<T> entry) {
+    final CompletableFuture<List<T>> request;
+    synchronized (myCache) {
+      if (--entry.dependents > 0 || entry.future.isDone()) return;
+      myCache.remove(key, entry);
+      request = entry.request;
+    }
+
+    entry.future.cancel(false);
+    if (request != null) {
+      // lets the server service discard the response
+      request.cancel(false);
+    }
+  }
+
+  void clear() {
+    synchronized (myCache) {
+      myCache.clear();
+    }
+  }
+
+  /**
+   * @param filePath system-independent path of the file, for which the queries have been sent
+   */
+  void clear(@NotNull final String filePath) {
+    synchronized (myCache) {
+      myCache.keySet().removeIf(key -> key.filePath.equals(filePath));
+    }
+  }
+
+  long getHitCount() {
+    return myHits.get();
+  }
+
+  long getMissCount() {
+    return myMisses.get();
+  }
+
+  @Override
+  public String toString() {
+    final int size;
+    synchronized (myCache) {
+      size = myCache.size();
+    }
+    return "request cache: " + size + " entries, " + myHits.get() + " hits, " + myMisses.get() + " misses";
+  }
+
+  private static long getModificationStamp(@NotNull final VirtualFile file) {
+    final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    return document != null ? document.getModificationStamp() : file.getModificationStamp();
+  }
+
+  private static final class Key {
+    @NotNull private final String requestKind;
+    @NotNull private final String filePath;
+    private final int offset;
+    private final int length;
+    private final long modificationStamp;
+
+    private Key(@NotNull final String requestKind,
+                @NotNull final String filePath,
+                final int offset,
+                final int length,
+                final long modificationStamp) {
+      this.requestKind = requestKind;
+      this.filePath = filePath;
+      this.offset = offset;
+      this.length = length;
+      this.modificationStamp = modificationStamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      final Key key = (Key)o;
+      return offset == key.offset &&
+             length == key.length &&
+             modificationStamp == key.modificationStamp &&
+             requestKind.equals(key.requestKind) &&
+             filePath.equals(key.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(requestKind, filePath, offset, length, modificationStamp);
+    }
+  }
+}
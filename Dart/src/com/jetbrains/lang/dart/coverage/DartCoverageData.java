@@ -1,78 +1,121 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.jetbrains.lang.dart.coverage;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import gnu.trove.THashMap;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntIntHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
 
+/**
+ * Line hits from the coverage JSON file, merged by source uri. The file is read with a streaming {@link JsonReader},
+ * hits go straight to int maps without building a tree of boxed values first.
+ */
 public class DartCoverageData {
-  @Nullable private List<DartFileCoverageData> coverage;
+  @NotNull private final Map<String, TIntIntHashMap> myMergedCoverageData = new THashMap<>();
 
-  @Nullable
-  public List<DartFileCoverageData> getCoverage() {
-    return coverage;
+  private DartCoverageData() {
   }
 
-  public void setCoverage(@Nullable List<DartFileCoverageData> coverage) {
-    this.coverage = coverage;
+  /**
+   * @return source uri to line hits map, lines are 1-based as in the coverage file
+   */
+  @NotNull
+  public Map<String, TIntIntHashMap> getMergedDartFileCoverageData() {
+    return myMergedCoverageData;
   }
 
-  @NotNull
-  public Map<String, SortedMap<Integer, Integer>> getMergedDartFileCoverageData() {
-    Map<String, SortedMap<Integer, Integer>> mergedCoverageData = new HashMap<>();
-    List<DartFileCoverageData> coverageData = getCoverage();
-    if (coverageData != null) {
-      for (DartFileCoverageData item : coverageData) {
-        String source = item.getSource();
-        if (source == null) {
-          continue;
-        }
-        if (!mergedCoverageData.containsKey(source)) {
-          mergedCoverageData.put(source, new TreeMap<>());
-        }
+  /**
+   * @return {@code null} if the reader is empty
+   * @throws IOException           if the content is not valid JSON
+   * @throws IllegalStateException if the content has unexpected structure
+   */
+  @Nullable
+  public static DartCoverageData read(@NotNull final Reader reader) throws IOException {
+    final JsonReader jsonReader = new JsonReader(reader);
+    try {
+      jsonReader.peek();
+    }
+    catch (EOFException e) {
+      return null;
+    }
 
-        SortedMap<Integer, Integer> fileData = mergedCoverageData.get(source);
-        List<Integer> hits = item.getHits();
-        if (hits == null) {
-          continue;
-        }
-        for (int i = 0; i < hits.size(); i += 2) {
-          Integer lineNumber = hits.get(i);
-          Integer hitCount = hits.get(i + 1);
-          if (!fileData.containsKey(lineNumber)) {
-            fileData.put(lineNumber, 0);
-          }
+    final DartCoverageData data = new DartCoverageData();
 
-          fileData.put(lineNumber, fileData.get(lineNumber) + hitCount);
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      if ("coverage".equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          data.readFileCoverage(jsonReader);
         }
+        jsonReader.endArray();
+      }
+      else {
+        jsonReader.skipValue();
       }
     }
+    jsonReader.endObject();
 
-    return mergedCoverageData;
+    return data;
   }
-}
 
+  private void readFileCoverage(@NotNull final JsonReader jsonReader) throws IOException {
+    String source = null;
+    TIntArrayList hits = null;
 
-class DartFileCoverageData {
-  @Nullable private String source;
-  @Nullable private List<Integer> hits;
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      final String name = jsonReader.nextName();
+      if ("source".equals(name) && jsonReader.peek() == JsonToken.STRING) {
+        source = jsonReader.nextString();
+      }
+      else if ("hits".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        hits = new TIntArrayList();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          if (jsonReader.peek() == JsonToken.NUMBER) {
+            hits.add(jsonReader.nextInt());
+          }
+          else {
+            // not a line number or a hit count, e.g. a line range in newer formats, the pair is ignored
+            jsonReader.skipValue();
+            hits.add(-1);
+          }
+        }
+        jsonReader.endArray();
+      }
+      else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
 
-  @Nullable
-  public String getSource() {
-    return source;
-  }
+    if (source == null) return;
 
-  public void setSource(@Nullable String source) {
-    this.source = source;
-  }
+    TIntIntHashMap fileData = myMergedCoverageData.get(source);
+    if (fileData == null) {
+      fileData = new TIntIntHashMap();
+      myMergedCoverageData.put(source, fileData);
+    }
 
-  @Nullable
-  public List<Integer> getHits() {
-    return hits;
-  }
+    if (hits == null) return;
+
+    for (int i = 0; i + 1 < hits.size(); i += 2) {
+      final int lineNumber = hits.get(i);
+      final int hitCount = hits.get(i + 1);
+      if (lineNumber < 0 || hitCount < 0) continue;
 
-  public void setHits(@Nullable List<Integer> hits) {
-    this.hits = hits;
+      if (!fileData.adjustValue(lineNumber, hitCount)) {
+        fileData.put(lineNumber, hitCount);
+      }
+    }
   }
-}
\ No newline at end of file
+}
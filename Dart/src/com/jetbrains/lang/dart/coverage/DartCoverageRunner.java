@@ -15,30 +15,33 @@
  */
 package com.jetbrains.lang.dart.coverage;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
 import com.intellij.coverage.CoverageSuite;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.rt.coverage.data.ClassData;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import com.jetbrains.lang.dart.util.DartUrlResolver;
+import gnu.trove.THashMap;
+import gnu.trove.TIntIntHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 
 public class DartCoverageRunner extends CoverageRunner {
   private static final String ID = "DartCoverageRunner";
@@ -97,37 +100,45 @@ public class DartCoverageRunner extends CoverageRunner {
 
     final ProjectData projectData = new ProjectData();
 
-    try {
-      DartCoverageData data = new Gson().fromJson(new BufferedReader(new FileReader(sessionDataFile)), DartCoverageData.class);
+    try (Reader reader = new BufferedReader(new FileReader(sessionDataFile))) {
+      final DartCoverageData data = DartCoverageData.read(reader);
       if (data == null) {
         LOG.warn("Coverage file does not contain valid data.");
         return null;
       }
 
-      for (Map.Entry<String, SortedMap<Integer, Integer>> entry : data.getMergedDartFileCoverageData().entrySet()) {
+      final Map<String, TIntIntHashMap> mergedCoverageData = data.getMergedDartFileCoverageData();
+      final Map<String, String> uriToFilePath = mapUrisToFilePaths(project, contextId, contextFilePath, mergedCoverageData.keySet());
+
+      for (Map.Entry<String, TIntIntHashMap> entry : mergedCoverageData.entrySet()) {
         ProgressManager.checkCanceled();
 
-        String filePath = getFileForUri(project, contextId, entry.getKey());
+        String filePath = uriToFilePath.get(entry.getKey());
         if (filePath == null) {
           // File is not found.
           continue;
         }
-        SortedMap<Integer, Integer> lineHits = entry.getValue();
+        TIntIntHashMap lineHits = entry.getValue();
         ClassData classData = projectData.getOrCreateClassData(filePath);
         if (lineHits.size() == 0) {
           classData.setLines(new LineData[1]);
           continue;
         }
-        LineData[] lines = new LineData[lineHits.lastKey() + 1];
-        for (Map.Entry<Integer, Integer> hit : lineHits.entrySet()) {
-          LineData lineData = new LineData(hit.getKey(), null);
-          lineData.setHits(hit.getValue());
-          lines[hit.getKey()] = lineData;
+        int maxLine = 0;
+        for (int line : lineHits.keys()) {
+          maxLine = Math.max(maxLine, line);
         }
+        final LineData[] lines = new LineData[maxLine + 1];
+        lineHits.forEachEntry((line, hits) -> {
+          LineData lineData = new LineData(line, null);
+          lineData.setHits(hits);
+          lines[line] = lineData;
+          return true;
+        });
         classData.setLines(lines);
       }
     }
-    catch (FileNotFoundException | JsonSyntaxException e) {
+    catch (IOException | IllegalStateException e) {
       LOG.warn(e);
     }
     finally {
@@ -137,14 +148,43 @@ public class DartCoverageRunner extends CoverageRunner {
     return projectData;
   }
 
-  @Nullable
-  private static String getFileForUri(@NotNull final Project project, @NotNull final String contextId, @NotNull final String uri) {
-    if (uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/")) {
-      // dart:_builtin or dart:core-patch/core_patch.dart
-      return null;
+  /**
+   * package: and file: uris are resolved locally, the same way as the analysis server does it, using the .packages file
+   * of the context file. Other uris are mapped by the analysis server in one batch of pipelined requests.
+   */
+  @NotNull
+  private static Map<String, String> mapUrisToFilePaths(@NotNull final Project project,
+                                                        @NotNull final String contextId,
+                                                        @NotNull final String contextFilePath,
+                                                        @NotNull final Collection<String> uris) {
+    final Map<String, String> result = new THashMap<>();
+    final List<String> urisToMapByServer = new ArrayList<>();
+
+    final VirtualFile contextFile = LocalFileSystem.getInstance().findFileByPath(contextFilePath);
+    final DartUrlResolver urlResolver =
+      contextFile == null ? null : ReadAction.compute(() -> DartUrlResolver.getInstance(project, contextFile));
+
+    for (String uri : uris) {
+      ProgressManager.checkCanceled();
+
+      if (uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/")) {
+        // dart:_builtin or dart:core-patch/core_patch.dart
+        continue;
+      }
+
+      if (urlResolver != null && (uri.startsWith(DartUrlResolver.PACKAGE_PREFIX) || uri.startsWith(DartUrlResolver.FILE_PREFIX))) {
+        final VirtualFile file = ReadAction.compute(() -> urlResolver.findFileByDartUrl(uri));
+        if (file != null) {
+          result.put(uri, file.getPath());
+          continue;
+        }
+      }
+
+      urisToMapByServer.add(uri);
     }
 
-    return DartAnalysisServerService.getInstance(project).execution_mapUri(contextId, null, uri);
+    result.putAll(DartAnalysisServerService.getInstance(project).execution_mapUris(contextId, urisToMapByServer));
+    return result;
   }
 
   @NotNull
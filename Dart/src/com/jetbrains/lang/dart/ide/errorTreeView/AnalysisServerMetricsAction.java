@@ -0,0 +1,46 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.ide.errorTreeView;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.ui.components.JBScrollPane;
+import com.jetbrains.lang.dart.DartBundle;
+import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+public class AnalysisServerMetricsAction extends DumbAwareAction {
+  public AnalysisServerMetricsAction() {
+    super(DartBundle.message("analysis.server.show.metrics.text"));
+  }
+
+  @Override
+  public void update(@NotNull AnActionEvent e) {
+    final Project project = e.getProject();
+    final DartAnalysisServerService service = project == null ? null : DartAnalysisServerService.getInstance(project);
+    e.getPresentation().setEnabledAndVisible(service != null && service.isServerProcessActive());
+  }
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    final Project project = e.getProject();
+    if (project == null) return;
+
+    final String report = DartAnalysisServerService.getInstance(project).getProtocolMetricsReport();
+    if (report == null) return;
+
+    final JTextArea textArea = new JTextArea(report);
+    textArea.setEditable(false);
+    textArea.setFont(EditorUtil.getEditorFont());
+
+    final DialogBuilder builder = new DialogBuilder(project);
+    builder.setTitle(DartBundle.message("analysis.server.show.metrics.title"));
+    builder.setCenterPanel(new JBScrollPane(textArea));
+    builder.addOkAction();
+    builder.show();
+  }
+}
@@ -11,6 +11,8 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ui.ColumnInfo;
 import com.intellij.util.ui.ListTableModel;
 import com.jetbrains.lang.dart.ide.annotator.DartAnnotator;
+import gnu.trove.THashSet;
+import gnu.trove.TObjectIntHashMap;
 import org.dartlang.analysis.server.protocol.AnalysisError;
 import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
 import org.jetbrains.annotations.NotNull;
@@ -63,6 +65,9 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   // Having it in hand we can do bulk rows removal with a single fireTableRowsDeleted() call afterwards
   private final List<DartProblem> myItems;
 
+  // Number of problems in myItems per file, lets removeRowsForFilesInSet() skip files without problems and stop scanning early
+  private final TObjectIntHashMap<String> myFilePathToProblemCount = new TObjectIntHashMap<>();
+
   private RowSorter.SortKey mySortKey = new RowSorter.SortKey(1, SortOrder.ASCENDING);
 
   private int myErrorCount = 0;
@@ -73,6 +78,10 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   private int myWarningCountAfterFilter = 0;
   private int myHintCountAfterFilter = 0;
 
+  // If problems of more files than this are removed at once then the table is compacted in one pass and a single 'data changed' event is
+  // fired: row sorter handles each 'rows deleted' event in linear time, so firing it for each file is quadratic.
+  private static final int MAX_FILES_TO_REMOVE_BY_REGIONS = 20;
+
   private final Comparator<DartProblem> myDescriptionComparator = new DartProblemsComparator(DartProblemsComparator.MESSAGE_COLUMN_ID);
   private final Comparator<DartProblem> myLocationComparator = new DartProblemsComparator(DartProblemsComparator.LOCATION_COLUMN_ID);
 
@@ -154,18 +163,41 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   public void removeRows(final int firstRow, final int lastRow) {
     assert lastRow >= firstRow;
 
-    for (int i = lastRow; i >= firstRow; i--) {
-      final DartProblem removed = myItems.remove(i);
-
-      if (AnalysisErrorSeverity.ERROR.equals(removed.getSeverity())) myErrorCount--;
-      if (AnalysisErrorSeverity.WARNING.equals(removed.getSeverity())) myWarningCount--;
-      if (AnalysisErrorSeverity.INFO.equals(removed.getSeverity())) myHintCount--;
-      updateProblemsCountAfterFilter(removed, false);
+    final List<DartProblem> rowsToRemove = myItems.subList(firstRow, lastRow + 1);
+    for (DartProblem removed : rowsToRemove) {
+      problemRemoved(removed);
     }
+    rowsToRemove.clear();
 
     fireTableRowsDeleted(firstRow, lastRow);
   }
 
+  private void problemRemoved(@NotNull final DartProblem removed) {
+    if (AnalysisErrorSeverity.ERROR.equals(removed.getSeverity())) myErrorCount--;
+    if (AnalysisErrorSeverity.WARNING.equals(removed.getSeverity())) myWarningCount--;
+    if (AnalysisErrorSeverity.INFO.equals(removed.getSeverity())) myHintCount--;
+    updateProblemsCountAfterFilter(removed, false);
+
+    final String filePath = removed.getSystemIndependentPath();
+    final int count = myFilePathToProblemCount.get(filePath) - 1;
+    if (count > 0) {
+      myFilePathToProblemCount.put(filePath, count);
+    }
+    else {
+      myFilePathToProblemCount.remove(filePath);
+    }
+  }
+
+  private void problemAdded(@NotNull final DartProblem problem) {
+    if (AnalysisErrorSeverity.ERROR.equals(problem.getSeverity())) myErrorCount++;
+    if (AnalysisErrorSeverity.WARNING.equals(problem.getSeverity())) myWarningCount++;
+    if (AnalysisErrorSeverity.INFO.equals(problem.getSeverity())) myHintCount++;
+    updateProblemsCountAfterFilter(problem, true);
+
+    final String filePath = problem.getSystemIndependentPath();
+    myFilePathToProblemCount.put(filePath, myFilePathToProblemCount.get(filePath) + 1);
+  }
+
   public void removeAll() {
     final int rowCount = getRowCount();
     if (rowCount > 0) {
@@ -173,6 +205,8 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
       fireTableRowsDeleted(0, rowCount - 1);
     }
 
+    myFilePathToProblemCount.clear();
+
     myErrorCount = 0;
     myWarningCount = 0;
     myHintCount = 0;
@@ -188,10 +222,52 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   @Nullable
   public DartProblem setErrorsAndReturnReplacementForSelection(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
                                                                @Nullable final DartProblem selectedProblem) {
-    final boolean selectedProblemRemoved = removeRowsForFilesInSet(filePathToErrors.keySet(), selectedProblem);
+    final Set<String> filePathsWithProblems = new THashSet<>();
+    for (String filePath : filePathToErrors.keySet()) {
+      if (myFilePathToProblemCount.containsKey(filePath)) {
+        filePathsWithProblems.add(filePath);
+      }
+    }
+
+    if (filePathsWithProblems.size() > MAX_FILES_TO_REMOVE_BY_REGIONS) {
+      final boolean selectedProblemRemoved = removeRowsForFilesInSetAtOnce(filePathsWithProblems, selectedProblem);
+      final DartProblem replacement =
+        addErrorsAndReturnReplacementForSelection(filePathToErrors, selectedProblemRemoved ? selectedProblem : null);
+      // the whole table has been reloaded, so the selection needs to be restored even if the selected problem is still there
+      return selectedProblemRemoved ? replacement : selectedProblem;
+    }
+
+    final boolean selectedProblemRemoved =
+      !filePathsWithProblems.isEmpty() && removeRowsForFilesInSet(filePathsWithProblems, selectedProblem);
     return addErrorsAndReturnReplacementForSelection(filePathToErrors, selectedProblemRemoved ? selectedProblem : null);
   }
 
+  private boolean removeRowsForFilesInSetAtOnce(@NotNull final Set<String> filePaths, @Nullable final DartProblem selectedProblem) {
+    boolean selectedProblemRemoved = false;
+    int newSize = 0;
+
+    for (int i = 0; i < myItems.size(); i++) {
+      final DartProblem problem = myItems.get(i);
+      if (filePaths.contains(problem.getSystemIndependentPath())) {
+        problemRemoved(problem);
+        if (problem == selectedProblem) {
+          selectedProblemRemoved = true;
+        }
+      }
+      else {
+        myItems.set(newSize++, problem);
+      }
+    }
+
+    myItems.subList(newSize, myItems.size()).clear();
+    fireTableDataChanged();
+
+    return selectedProblemRemoved;
+  }
+
+  /**
+   * @param filePaths files that have problems in the table
+   */
   private boolean removeRowsForFilesInSet(@NotNull final Set<String> filePaths, @Nullable final DartProblem selectedProblem) {
     // Looks for regions in table items that should be removed and removes them.
     // For performance reasons we try to call removeRows() as rare as possible, that means with regions as big as possible.
@@ -290,10 +366,7 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
           newSelectedProblem = problem;
         }
 
-        if (AnalysisErrorSeverity.ERROR.equals(problem.getSeverity())) myErrorCount++;
-        if (AnalysisErrorSeverity.WARNING.equals(problem.getSeverity())) myWarningCount++;
-        if (AnalysisErrorSeverity.INFO.equals(problem.getSeverity())) myHintCount++;
-        updateProblemsCountAfterFilter(problem, true);
+        problemAdded(problem);
       }
     }
 
@@ -1,5 +1,7 @@
 package com.jetbrains.lang.dart.ide.index;
 
+import com.intellij.util.containers.Interner;
+import com.intellij.util.containers.WeakInterner;
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.DataInputOutputUtil;
 import com.intellij.util.io.IOUtil;
@@ -10,15 +12,21 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+/**
+ * Component type and presence of the library name are packed into a single var-int header.
+ * There are few distinct library names and each of them is repeated in every component of the library,
+ * so library names read from the index are interned and the same instance is shared by all infos.
+ */
 public class DartComponentInfoExternalizer implements DataExternalizer<DartComponentInfo> {
 
+  private static final Interner<String> ourLibraryNames = new WeakInterner<>();
+
   @Override
   public void save(@NotNull final DataOutput out, @NotNull final DartComponentInfo componentInfo) throws IOException {
     final DartComponentType dartComponentType = componentInfo.getComponentType();
     final int key = dartComponentType == null ? -1 : dartComponentType.getKey();
-    DataInputOutputUtil.writeINT(out, key);
     final String libraryName = componentInfo.getLibraryName();
-    out.writeBoolean(libraryName != null);
+    DataInputOutputUtil.writeINT(out, ((key + 1) << 1) | (libraryName != null ? 1 : 0));
     if (libraryName != null) {
       IOUtil.writeUTF(out, libraryName);
     }
@@ -26,9 +34,14 @@ public class DartComponentInfoExternalizer implements DataExternalizer<DartCompo
 
   @Override
   public DartComponentInfo read(@NotNull DataInput in) throws IOException {
-    final int componentTypeKey = DataInputOutputUtil.readINT(in);
-    final boolean hasLibraryName = in.readBoolean();
-    final String libraryName = hasLibraryName ? IOUtil.readUTF(in) : null;
+    final int header = DataInputOutputUtil.readINT(in);
+    final int componentTypeKey = (header >> 1) - 1;
+    final String libraryName = (header & 1) != 0 ? internLibraryName(IOUtil.readUTF(in)) : null;
     return new DartComponentInfo(DartComponentType.valueOf(componentTypeKey), libraryName);
   }
+
+  @NotNull
+  private static String internLibraryName(@NotNull final String libraryName) {
+    return ourLibraryNames.intern(libraryName);
+  }
 }
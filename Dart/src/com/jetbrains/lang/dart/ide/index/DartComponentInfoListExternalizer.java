@@ -2,8 +2,6 @@ package com.jetbrains.lang.dart.ide.index;
 
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.DataInputOutputUtil;
-import com.intellij.util.io.IOUtil;
-import com.jetbrains.lang.dart.DartComponentType;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.DataInput;
@@ -15,18 +13,13 @@ import java.util.List;
 
 public class DartComponentInfoListExternalizer implements DataExternalizer<List<DartComponentInfo>> {
 
+  private final DartComponentInfoExternalizer myInfoExternalizer = new DartComponentInfoExternalizer();
+
   @Override
   public void save(@NotNull final DataOutput out, @NotNull final List<DartComponentInfo> infos) throws IOException {
     DataInputOutputUtil.writeINT(out, infos.size());
     for (DartComponentInfo componentInfo : infos) {
-      final DartComponentType dartComponentType = componentInfo.getComponentType();
-      final int key = dartComponentType == null ? -1 : dartComponentType.getKey();
-      DataInputOutputUtil.writeINT(out, key);
-      final String libraryName = componentInfo.getLibraryName();
-      out.writeBoolean(libraryName != null);
-      if (libraryName != null) {
-        IOUtil.writeUTF(out, libraryName);
-      }
+      myInfoExternalizer.save(out, componentInfo);
     }
   }
 
@@ -38,10 +31,7 @@ public class DartComponentInfoListExternalizer implements DataExternalizer<List<
     List<DartComponentInfo> result = new ArrayList<>(size);
 
     for (int i = 0; i < size; i++) {
-      final int componentTypeKey = DataInputOutputUtil.readINT(in);
-      final boolean hasLibraryName = in.readBoolean();
-      final String libraryName = hasLibraryName ? IOUtil.readUTF(in) : null;
-      result.add(new DartComponentInfo(DartComponentType.valueOf(componentTypeKey), libraryName));
+      result.add(myInfoExternalizer.read(in));
     }
 
     return result;
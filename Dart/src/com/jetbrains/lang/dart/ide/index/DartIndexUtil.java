@@ -18,11 +18,15 @@ import java.util.Set;
 import static com.jetbrains.lang.dart.ide.index.DartImportOrExportInfo.Kind;
 
 public class DartIndexUtil {
-  // inc when change parser
-  public static final int INDEX_VERSION = 24;
+  // inc when change parser or the format of index values
+  public static final int INDEX_VERSION = 25;
 
   private static final Key<DartFileIndexData> ourDartCachesData = Key.create("dart.caches.index.data");
 
+  /**
+   * All Dart indices take their data from the result of a single pass over the file PSI, which is computed by the first
+   * indexer that asks for it and then kept in the user data of the file content.
+   */
   public static DartFileIndexData indexFile(FileContent content) {
     DartFileIndexData indexData = content.getUserData(ourDartCachesData);
     if (indexData != null) return indexData;
@@ -31,6 +35,7 @@ public class DartIndexUtil {
       indexData = content.getUserData(ourDartCachesData);
       if (indexData != null) return indexData;
       indexData = indexFileRoots(content.getPsiFile());
+      content.putUserData(ourDartCachesData, indexData);
     }
 
     return indexData;
@@ -9,6 +9,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Ref;
 import com.intellij.util.Alarm;
 import com.intellij.util.concurrency.Semaphore;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
 import com.intellij.xdebugger.breakpoints.XLineBreakpoint;
@@ -30,12 +31,14 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class VmServiceWrapper implements Disposable {
 
   public static final Logger LOG = Logger.getInstance(VmServiceWrapper.class.getName());
   private static final long RESPONSE_WAIT_TIMEOUT = 3000; // millis
+  private static final int MAX_PREFETCHED_OBJECTS = 50;
 
   private final DartVmServiceDebugProcess myDebugProcess;
   private final VmService myVmService;
@@ -44,6 +47,14 @@ public class VmServiceWrapper implements Disposable {
   private final DartVmServiceBreakpointHandler myBreakpointHandler;
   private final Alarm myRequestsScheduler;
 
+  // Objects don't change while the isolate is paused, so getObject() responses (Obj instances) are shared until the isolate resumes
+  // or an expression is evaluated in it. Keys are built by getObjectCacheKey(), values are completed with Obj, Sentinel or RPCError.
+  private final ConcurrentMap<String, CompletableFuture<Object>> myObjectCache = ContainerUtil.newConcurrentMap();
+  // Instances of the variables of the frame shown last in each isolate, prefetched when the first object is expanded in the frame.
+  // Forgotten when the object cache is invalidated, so nothing is prefetched after a resume has been requested.
+  private final ConcurrentMap<String, List<InstanceRef>> myInstancesToPrefetch = ContainerUtil.newConcurrentMap();
+  private final AtomicInteger myPendingResumes = new AtomicInteger();
+
   private long myVmServiceReceiverThreadId;
 
   @Nullable private StepOption myLatestStep;
@@ -327,6 +338,7 @@ public class VmServiceWrapper implements Disposable {
   public void restoreBreakpointsForIsolate(@NotNull final String isolateId, @Nullable final Runnable onFinished) {
     // Cached information about the isolate may now be stale.
     myIsolatesInfo.invalidateCache(isolateId);
+    invalidateObjectCache(isolateId);
 
     // Remove all existing VM breakpoints for this isolate.
     myBreakpointHandler.removeAllVmBreakpoints(isolateId);
@@ -357,7 +369,10 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void resumeIsolate(@NotNull final String isolateId, @Nullable final StepOption stepOption) {
+    invalidateObjectCache(isolateId);
+    myPendingResumes.incrementAndGet();
     addRequest(() -> {
+      myPendingResumes.decrementAndGet();
       myLatestStep = stepOption;
       myVmService.resume(isolateId, stepOption, null, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
     });
@@ -376,7 +391,10 @@ public class VmServiceWrapper implements Disposable {
    * function, so frameIndex must be at least 1.
    */
   public void dropFrame(@NotNull final String isolateId, int frameIndex) {
+    invalidateObjectCache(isolateId);
+    myPendingResumes.incrementAndGet();
     addRequest(() -> {
+      myPendingResumes.decrementAndGet();
       myLatestStep = StepOption.Rewind;
       myVmService.resume(isolateId, StepOption.Rewind, frameIndex, new SuccessConsumer() {
         @Override
@@ -476,7 +494,7 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void getObject(@NotNull final String isolateId, @NotNull final String objectId, @NotNull final GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    forwardResponse(getObjectFuture(isolateId, objectId, -1, -1), consumer);
   }
 
   public void getCollectionObject(@NotNull final String isolateId,
@@ -484,13 +502,133 @@ public class VmServiceWrapper implements Disposable {
                                   final int offset,
                                   final int count,
                                   @NotNull final GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    forwardResponse(getObjectFuture(isolateId, objectId, offset, count), consumer);
+  }
+
+  /**
+   * Remembers the instances of the variables of a frame that is shown. They are prefetched by {@link #prefetchFrameObjects(String)}
+   * only when the user expands an object in the frame, so that frames whose variables are not looked at cost no extra requests.
+   */
+  public void setFrameObjectsToPrefetch(@NotNull final String isolateId, @NotNull final List<InstanceRef> instanceRefs) {
+    if (instanceRefs.isEmpty()) {
+      myInstancesToPrefetch.remove(isolateId);
+    }
+    else {
+      myInstancesToPrefetch.put(isolateId, instanceRefs);
+    }
+  }
+
+  /**
+   * Sends getObject() requests for the instances remembered by {@link #setFrameObjectsToPrefetch(String, List)} at once, without
+   * waiting for each response, so that expanding any of them later is served from the cache. Called when the response to the first
+   * expanded object has arrived, does nothing next time or if a resume is pending. Only the first {@link #MAX_PREFETCHED_OBJECTS}
+   * instances are prefetched.
+   */
+  public void prefetchFrameObjects(@NotNull final String isolateId) {
+    if (myPendingResumes.get() > 0) return;
+
+    final List<InstanceRef> instanceRefs = myInstancesToPrefetch.remove(isolateId);
+    if (instanceRefs == null) return;
+
+    int count = 0;
+    for (InstanceRef instanceRef : instanceRefs) {
+      if (count++ >= MAX_PREFETCHED_OBJECTS) break;
+      getObjectFuture(isolateId, instanceRef.getId(), -1, -1);
+    }
+  }
+
+  /**
+   * Requests a page of collection elements ahead of time, e.g. the next page after the one that is currently shown.
+   */
+  public void prefetchCollectionObject(@NotNull final String isolateId, @NotNull final String objectId, final int offset, final int count) {
+    getObjectFuture(isolateId, objectId, offset, count);
+  }
+
+  public void invalidateObjectCache(@NotNull final String isolateId) {
+    final String prefix = getObjectCacheKey(isolateId, "", -1, -1);
+    myObjectCache.keySet().removeIf(key -> key.startsWith(prefix));
+    myInstancesToPrefetch.remove(isolateId);
+  }
+
+  @NotNull
+  private static String getObjectCacheKey(@NotNull final String isolateId, @NotNull final String objectId, final int offset, final int count) {
+    return offset < 0 ? isolateId + '\n' + objectId : isolateId + '\n' + objectId + '\n' + offset + '\n' + count;
+  }
+
+  @NotNull
+  private CompletableFuture<Object> getObjectFuture(@NotNull final String isolateId,
+                                                    @NotNull final String objectId,
+                                                    final int offset,
+                                                    final int count) {
+    final String key = getObjectCacheKey(isolateId, objectId, offset, count);
+    final CompletableFuture<Object> cachedFuture = myObjectCache.get(key);
+    if (cachedFuture != null) return cachedFuture;
+
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+    final CompletableFuture<Object> concurrentFuture = myObjectCache.putIfAbsent(key, future);
+    if (concurrentFuture != null) return concurrentFuture;
+
+    final GetObjectConsumer consumer = new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        future.complete(response);
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        // sentinels and errors are not cached
+        myObjectCache.remove(key, future);
+        future.complete(response);
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        myObjectCache.remove(key, future);
+        future.complete(error);
+      }
+    };
+
+    if (offset < 0) {
+      addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    }
+    else {
+      addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    }
+
+    return future;
+  }
+
+  /**
+   * The consumer is called in the VM service receiver thread if the response comes from the VM, or in a pooled thread if it has been
+   * cached, but never in the calling thread, as for the requests that are not cached.
+   */
+  private void forwardResponse(@NotNull final CompletableFuture<Object> future, @NotNull final GetObjectConsumer consumer) {
+    future.thenAcceptAsync(response -> {
+      if (response instanceof Obj) {
+        consumer.received((Obj)response);
+      }
+      else if (response instanceof Sentinel) {
+        consumer.received((Sentinel)response);
+      }
+      else {
+        consumer.onError((RPCError)response);
+      }
+    }, runnable -> {
+      if (myVmServiceReceiverThreadId == Thread.currentThread().getId()) {
+        runnable.run();
+      }
+      else {
+        ApplicationManager.getApplication().executeOnPooledThread(runnable);
+      }
+    });
   }
 
   public void evaluateInFrame(@NotNull final String isolateId,
                               @NotNull final Frame vmFrame,
                               @NotNull final String expression,
                               @NotNull final XDebuggerEvaluator.XEvaluationCallback callback) {
+    // evaluated expression may change objects
+    invalidateObjectCache(isolateId);
     addRequest(() -> myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression, new EvaluateInFrameConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
@@ -526,6 +664,8 @@ public class VmServiceWrapper implements Disposable {
                                       @NotNull final String targetId,
                                       @NotNull final String expression,
                                       @NotNull final XDebuggerEvaluator.XEvaluationCallback callback) {
+    // evaluated expression may change objects
+    invalidateObjectCache(isolateId);
     evaluateInTargetContext(isolateId, targetId, expression, new EvaluateConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
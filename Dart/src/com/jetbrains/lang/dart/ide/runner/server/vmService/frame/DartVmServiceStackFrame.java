@@ -172,11 +172,15 @@ public class DartVmServiceStackFrame extends XStackFrame {
 
   private void addVars(@NotNull final XCompositeNode node, @NotNull final ElementList<BoundVariable> vars) {
     final XValueChildrenList childrenList = new XValueChildrenList(vars.size());
+    final List<InstanceRef> instancesToPrefetch = new SmartList<>();
 
     for (BoundVariable var : vars) {
       final Object value = var.getValue();
       if (value instanceof InstanceRef) {
         final InstanceRef instanceRef = (InstanceRef)value;
+        if (instanceRef.getKind() == InstanceKind.PlainInstance) {
+          instancesToPrefetch.add(instanceRef);
+        }
         final DartVmServiceValue.LocalVarSourceLocation varLocation =
           "this".equals(var.getName())
           ? null
@@ -185,6 +189,9 @@ public class DartVmServiceStackFrame extends XStackFrame {
       }
     }
 
+    // once the user expands a variable, fields of the other ones are likely to be looked at too
+    myDebugProcess.getVmServiceWrapper().setFrameObjectsToPrefetch(myIsolateId, instancesToPrefetch);
+
     node.addChildren(childrenList, true);
   }
 
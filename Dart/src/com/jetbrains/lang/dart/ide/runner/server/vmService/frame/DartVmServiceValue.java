@@ -363,6 +363,7 @@ public class DartVmServiceValue extends XNamedValue {
         @Override
         public void received(Obj instance) {
           addFields(node, ((Instance)instance).getFields());
+          myDebugProcess.getVmServiceWrapper().prefetchFrameObjects(myIsolateId);
         }
 
         @Override
@@ -399,6 +400,11 @@ public class DartVmServiceValue extends XNamedValue {
 
         if (offset + count < myInstanceRef.getLength()) {
           node.tooManyChildren(myInstanceRef.getLength() - offset - count);
+
+          // read the next page ahead, so that it is ready when the user asks for more children
+          final int nextOffset = offset + count;
+          final int nextCount = Math.min(myInstanceRef.getLength() - nextOffset, XCompositeNode.MAX_CHILDREN_TO_SHOW);
+          myDebugProcess.getVmServiceWrapper().prefetchCollectionObject(myIsolateId, myInstanceRef.getId(), nextOffset, nextCount);
         }
       }
 
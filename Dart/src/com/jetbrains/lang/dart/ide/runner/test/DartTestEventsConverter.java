@@ -13,6 +13,7 @@ import com.intellij.util.PathUtil;
 import com.jetbrains.lang.dart.ide.runner.util.DartTestLocationProvider;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import gnu.trove.TIntLongHashMap;
+import gnu.trove.TIntObjectHashMap;
 import jetbrains.buildServer.messages.serviceMessages.ServiceMessageVisitor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -20,7 +21,7 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -32,6 +33,8 @@ import java.util.regex.Pattern;
  * NOTE: The test runner runs tests asynchronously. It is possible to get a 'testDone'
  * event followed some time later by an 'error' event for that same test. That should
  * convert a successful test into a failure. That case is not being handled.
+ * To keep memory bounded on huge test suites, data of finished tests is dropped, only the {@link #RECENTLY_DONE_TESTS_LIMIT}
+ * most recently finished tests are remembered, so that such late 'error' and 'print' events can still be reported.
  */
 public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter {
   private static final Logger LOG = Logger.getInstance(DartTestEventsConverter.class.getName());
@@ -84,7 +87,10 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private static final String SET_UP_ALL_VIRTUAL_TEST_NAME = "(setUpAll)";
   private static final String TEAR_DOWN_ALL_VIRTUAL_TEST_NAME = "(tearDownAll)";
 
+  private static final int RECENTLY_DONE_TESTS_LIMIT = 1000;
+
   private static final Gson GSON = new Gson();
+  private static final JsonParser JSON_PARSER = new JsonParser();
 
   @NotNull private final DartUrlResolver myUrlResolver;
 
@@ -92,9 +98,10 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private Key myCurrentOutputType;
   private ServiceMessageVisitor myCurrentVisitor;
   private final TIntLongHashMap myTestIdToTimestamp;
-  private final Map<Integer, Test> myTestData;
-  private final Map<Integer, Group> myGroupData;
-  private final Map<Integer, Suite> mySuiteData;
+  private final TIntObjectHashMap<Test> myTestData;
+  private final Map<Integer, Test> myRecentlyDoneTests;
+  private final TIntObjectHashMap<Group> myGroupData;
+  private final TIntObjectHashMap<Suite> mySuiteData;
   private int mySuitCount;
 
   public DartTestEventsConverter(@NotNull final String testFrameworkName,
@@ -103,9 +110,15 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     super(testFrameworkName, consoleProperties);
     myUrlResolver = urlResolver;
     myTestIdToTimestamp = new TIntLongHashMap();
-    myTestData = new HashMap<>();
-    myGroupData = new HashMap<>();
-    mySuiteData = new HashMap<>();
+    myTestData = new TIntObjectHashMap<>();
+    myRecentlyDoneTests = new LinkedHashMap<Integer, Test>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Test> eldest) {
+        return size() > RECENTLY_DONE_TESTS_LIMIT;
+      }
+    };
+    myGroupData = new TIntObjectHashMap<>();
+    mySuiteData = new TIntObjectHashMap<>();
   }
 
   @Override
@@ -119,10 +132,9 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private boolean processEventText(final String text) throws JsonSyntaxException, ParseException {
-    JsonParser jp = new JsonParser();
     JsonElement elem;
     try {
-      elem = jp.parse(text);
+      elem = JSON_PARSER.parse(text);
     }
     catch (JsonSyntaxException ex) {
       if (text.contains("\"json\" is not an allowed value for option \"reporter\"")) {
@@ -233,6 +245,8 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
 
   private boolean handleTestDone(JsonObject obj) throws ParseException {
     final Test test = getTest(obj);
+    final long startTimestamp = myTestIdToTimestamp.get(test.getId());
+    forgetDoneTest(test);
 
     if (!test.myTestStartReported) return true;
 
@@ -246,12 +260,18 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     //if (test.getMetadata().skip) return true; // skipped tests are reported as ignored in handleTestStart(). testFinished signal must follow
 
     ServiceMessageBuilder testFinished = ServiceMessageBuilder.testFinished(test.getBaseName());
-    long duration = getTimestamp(obj) - myTestIdToTimestamp.get(test.getId());
+    long duration = getTimestamp(obj) - startTimestamp;
     testFinished.addAttribute("duration", Long.toString(duration));
 
     return finishMessage(testFinished, test.getId(), test.getValidParentId()) && checkGroupDone(test.getParent());
   }
 
+  private void forgetDoneTest(@NotNull final Test test) {
+    myTestData.remove(test.getId());
+    myTestIdToTimestamp.remove(test.getId());
+    myRecentlyDoneTests.put(test.getId(), test);
+  }
+
   private boolean checkGroupDone(@Nullable final Group group) throws ParseException {
     if (group != null && group.getTestCount() > 0 && group.getDoneTestsCount() == group.getTestCount()) {
       return processGroupDone(group) && checkGroupDone(group.getParent());
@@ -375,6 +395,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private boolean handleStart(JsonObject obj) throws ParseException {
     myTestIdToTimestamp.clear();
     myTestData.clear();
+    myRecentlyDoneTests.clear();
     myGroupData.clear();
     mySuiteData.clear();
     mySuitCount = 0;
@@ -390,7 +411,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
 
   private void processAllTestsDone() {
     // All tests are done.
-    for (Group group : myGroupData.values()) {
+    myGroupData.forEachValue(group -> {
       // For package: test prior to v. 0.12.9 there were no Group.testCount field, so need to finish them all at the end.
       // AFAIK the order does not matter. A depth-first post-order traversal of the tree would work
       // if order does matter. Note: Currently, there is no tree representation, just parent links.
@@ -403,9 +424,11 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
           // ignore it
         }
       }
-    }
+      return true;
+    });
     myTestIdToTimestamp.clear();
     myTestData.clear();
+    myRecentlyDoneTests.clear();
     myGroupData.clear();
     mySuiteData.clear();
     mySuitCount = 0;
@@ -486,7 +509,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   @NotNull
-  private <T extends Item> T getItem(JsonObject obj, Map<Integer, T> items) throws ParseException {
+  private <T extends Item> T getItem(JsonObject obj, TIntObjectHashMap<T> items) throws ParseException {
     if (obj == null) throw new ParseException("Unexpected null json object", 0);
     T item;
     JsonElement id = obj.get(JSON_ID);
@@ -510,6 +533,13 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
       if (testId != null) {
         int baseId = testId.getAsInt();
         item = items.get(baseId);
+        if (item == null && items == myTestData) {
+          @SuppressWarnings("unchecked") T doneTest = (T)myRecentlyDoneTests.get(baseId);
+          item = doneTest;
+        }
+        if (item == null) {
+          throw new ParseException("Unknown testID: " + baseId, 0);
+        }
       }
       else {
         JsonElement testObj = obj.get(DEF_TEST);
@@ -578,7 +608,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
       return Metadata.from(obj.get(DEF_METADATA));
     }
 
-    static Suite lookupSuite(JsonObject obj, Map<Integer, Suite> suites) {
+    static Suite lookupSuite(JsonObject obj, TIntObjectHashMap<Suite> suites) {
       JsonElement suiteObj = obj.get(JSON_SUITE_ID);
       Suite suite = null;
       if (suiteObj != null && suiteObj.isJsonPrimitive()) {
@@ -711,16 +741,19 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private boolean myTestStartReported = false;
     private boolean myTestErrorReported = false;
 
-    static Test from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
-      int[] groupIds = GSON.fromJson(obj.get(JSON_GROUP_IDS), (Type)int[].class);
+    static Test from(JsonObject obj, TIntObjectHashMap<Group> groups, TIntObjectHashMap<Suite> suites) {
+      // only the innermost group is needed
+      JsonElement groupIds = obj.get(JSON_GROUP_IDS);
       Group parent = null;
-      if (groupIds != null && groupIds.length > 0) {
-        parent = groups.get(groupIds[groupIds.length - 1]);
+      if (groupIds != null && groupIds.isJsonArray() && groupIds.getAsJsonArray().size() > 0) {
+        final JsonArray groupIdsArray = groupIds.getAsJsonArray();
+        parent = groups.get(groupIdsArray.get(groupIdsArray.size() - 1).getAsInt());
       }
       Suite suite = lookupSuite(obj, suites);
       final int line = extractInt(obj, JSON_LINE);
       final int column = extractInt(obj, JSON_COLUMN);
-      return new Test(extractInt(obj, JSON_ID), extractString(obj, JSON_NAME, NO_NAME), parent, suite, extractMetadata(obj),
+      // test metadata is needed only once, in handleTestStart(), so it is not kept for the whole run
+      return new Test(extractInt(obj, JSON_ID), extractString(obj, JSON_NAME, NO_NAME), parent, suite, Suite.NoMetadata,
                       line < 0 ? -1 : line - 1, column < 0 ? -1 : column - 1, extractString(obj, JSON_URL, null));
     }
 
@@ -739,7 +772,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private int myTestCount = 0;
     private int myDoneTestsCount = 0;
 
-    static Group from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
+    static Group from(JsonObject obj, TIntObjectHashMap<Group> groups, TIntObjectHashMap<Suite> suites) {
       JsonElement parentObj = obj.get(JSON_PARENT_ID);
       Group parent = null;
       if (parentObj != null && parentObj.isJsonPrimitive()) {
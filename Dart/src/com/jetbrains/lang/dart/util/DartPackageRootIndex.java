@@ -0,0 +1,118 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.util;
+
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Reverse index of package roots: finds the package that contains a file by its path. Root paths are stored in a trie of path
+ * segments, so a lookup takes time proportional to the depth of the file path rather than to the number of packages.
+ * If package roots are nested, the deepest one wins.
+ */
+public class DartPackageRootIndex {
+
+  public static final DartPackageRootIndex EMPTY = new DartPackageRootIndex();
+
+  private static class Node {
+    @Nullable private Map<String, Node> myChildren;
+    @Nullable private String myPackageName;
+  }
+
+  private final Node myRoot = new Node();
+
+  private DartPackageRootIndex() {
+  }
+
+  /**
+   * @param packageNameToRootPathMap package name to the absolute path of its root folder, '/'-separated
+   */
+  @NotNull
+  public static DartPackageRootIndex create(@NotNull final Map<String, String> packageNameToRootPathMap) {
+    final DartPackageRootIndex index = new DartPackageRootIndex();
+    for (Map.Entry<String, String> entry : packageNameToRootPathMap.entrySet()) {
+      index.add(entry.getKey(), entry.getValue());
+    }
+    return index;
+  }
+
+  /**
+   * @param packageNameToRootPathsMap package name to the absolute paths of its root folders, '/'-separated
+   */
+  @NotNull
+  public static DartPackageRootIndex createForMultipleRoots(@NotNull final Map<String, ? extends Collection<String>> packageNameToRootPathsMap) {
+    final DartPackageRootIndex index = new DartPackageRootIndex();
+    for (Map.Entry<String, ? extends Collection<String>> entry : packageNameToRootPathsMap.entrySet()) {
+      for (String rootPath : entry.getValue()) {
+        index.add(entry.getKey(), rootPath);
+      }
+    }
+    return index;
+  }
+
+  private void add(@NotNull final String packageName, @NotNull final String rootPath) {
+    Node node = myRoot;
+    int start = 0;
+    while (start < rootPath.length()) {
+      int end = rootPath.indexOf('/', start);
+      if (end < 0) end = rootPath.length();
+
+      if (end > start) {
+        final String segment = rootPath.substring(start, end);
+        if (node.myChildren == null) {
+          node.myChildren = new THashMap<>();
+        }
+        Node child = node.myChildren.get(segment);
+        if (child == null) {
+          child = new Node();
+          node.myChildren.put(segment, child);
+        }
+        node = child;
+      }
+
+      start = end + 1;
+    }
+
+    if (node != myRoot && node.myPackageName == null) {
+      node.myPackageName = packageName;
+    }
+  }
+
+  /**
+   * Returns the <code>package:</code> URL of the file with the given path if it is located inside one of the indexed package roots.
+   *
+   * @param includeRoot whether the package root folder itself matches, in which case the returned URL ends with '/'
+   */
+  @Nullable
+  public String getPackageUrl(@NotNull final String filePath, final boolean includeRoot) {
+    Node node = myRoot;
+    String packageName = null;
+    int packageRootEnd = -1;
+
+    int start = 0;
+    while (start < filePath.length() && node.myChildren != null) {
+      int end = filePath.indexOf('/', start);
+      if (end < 0) end = filePath.length();
+
+      if (end > start) {
+        node = node.myChildren.get(filePath.substring(start, end));
+        if (node == null) break;
+
+        if (node.myPackageName != null && (includeRoot || end < filePath.length())) {
+          packageName = node.myPackageName;
+          packageRootEnd = end;
+        }
+      }
+
+      start = end + 1;
+    }
+
+    if (packageName == null) return null;
+
+    final String relPath = packageRootEnd < filePath.length() ? filePath.substring(packageRootEnd + 1) : "";
+    return DartUrlResolver.PACKAGE_PREFIX + packageName + "/" + relPath;
+  }
+}
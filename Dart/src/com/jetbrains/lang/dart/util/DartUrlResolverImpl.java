@@ -43,6 +43,12 @@ public class DartUrlResolverImpl extends DartUrlResolver {
   @NotNull private final Map<String, VirtualFile> myLivePackageNameToDirMap = new THashMap<>();
   // myPackagesMapFromLib is not empty only if pubspec.yaml file is null
   @NotNull private final Map<String, List<String>> myPackagesMapFromLib = new THashMap<>();
+  // not null if myLivePackageNameToDirMap has been initialized from .packages file
+  @Nullable private VirtualFile myDotPackagesFile;
+  // reverse indices for getDartUrlForFile(), built from VirtualFile paths of existing package roots;
+  // the index for .packages file is shared by all resolvers using the same file
+  @Nullable private volatile DartPackageRootIndex myLivePackageRootIndex;
+  @Nullable private volatile DartPackageRootIndex myPackagesFromLibRootIndex;
 
   public DartUrlResolverImpl(final @NotNull Project project, final @NotNull VirtualFile contextFile) {
     myProject = project;
@@ -155,10 +161,10 @@ public class DartUrlResolverImpl extends DartUrlResolver {
     if (myDartSdk != null) result = getUrlIfFileFromSdkLib(myProject, file, myDartSdk);
     if (result != null) return result;
 
-    result = getUrlIfFileFromLivePackage(file, myLivePackageNameToDirMap);
+    result = getUrlIfFileFromLivePackage(file);
     if (result != null) return result;
 
-    result = getUrlIfFileFromDartPackagesLib(file, myPackagesMapFromLib);
+    result = getUrlIfFileFromDartPackagesLib(file);
     if (result != null) return result;
 
     // see com.google.dart.tools.debug.core.server.ServerBreakpointManager#getAbsoluteUrlForResource()
@@ -182,31 +188,37 @@ public class DartUrlResolverImpl extends DartUrlResolver {
   }
 
   @Nullable
-  private static String getUrlIfFileFromLivePackage(final @NotNull VirtualFile file,
-                                                    final @NotNull Map<String, VirtualFile> livePackageNameToDirMap) {
-    for (Map.Entry<String, VirtualFile> entry : livePackageNameToDirMap.entrySet()) {
-      final String packageName = entry.getKey();
-      final VirtualFile packageDir = entry.getValue();
-      final String relPath = VfsUtilCore.getRelativePath(file, packageDir, '/');
-      if (relPath != null) {
-        return PACKAGE_PREFIX + packageName + "/" + relPath;
+  private String getUrlIfFileFromLivePackage(final @NotNull VirtualFile file) {
+    if (myLivePackageNameToDirMap.isEmpty()) return null;
+
+    DartPackageRootIndex index = myLivePackageRootIndex;
+    if (index == null) {
+      if (myDotPackagesFile != null) {
+        index = DotPackagesFileUtil.getPackageRootIndex(myDotPackagesFile, myLivePackageNameToDirMap);
+      }
+      else {
+        final Map<String, String> packageNameToPathMap = new THashMap<>(myLivePackageNameToDirMap.size());
+        for (Map.Entry<String, VirtualFile> entry : myLivePackageNameToDirMap.entrySet()) {
+          packageNameToPathMap.put(entry.getKey(), entry.getValue().getPath());
+        }
+        index = DartPackageRootIndex.create(packageNameToPathMap);
       }
+      myLivePackageRootIndex = index;
     }
-    return null;
+
+    return index.getPackageUrl(file.getPath(), true);
   }
 
   @Nullable
-  private static String getUrlIfFileFromDartPackagesLib(final @NotNull VirtualFile file,
-                                                        final @NotNull Map<String, List<String>> pubListPackageDirsMap) {
-    for (Map.Entry<String, List<String>> mapEntry : pubListPackageDirsMap.entrySet()) {
-      for (String dirPath : mapEntry.getValue()) {
-        if (file.getPath().startsWith(dirPath + "/")) {
-          final String packageName = mapEntry.getKey();
-          return PACKAGE_PREFIX + packageName + file.getPath().substring(dirPath.length());
-        }
-      }
+  private String getUrlIfFileFromDartPackagesLib(final @NotNull VirtualFile file) {
+    if (myPackagesMapFromLib.isEmpty()) return null;
+
+    DartPackageRootIndex index = myPackagesFromLibRootIndex;
+    if (index == null) {
+      myPackagesFromLibRootIndex = index = DartPackageRootIndex.createForMultipleRoots(myPackagesMapFromLib);
     }
-    return null;
+
+    return index.getPackageUrl(file.getPath(), false);
   }
 
   private void initLivePackageNameToDirMap() {
@@ -225,6 +237,7 @@ public class DartUrlResolverImpl extends DartUrlResolver {
             myLivePackageNameToDirMap.put(packageName, packageDir);
           }
         }
+        myDotPackagesFile = dotPackagesFile;
       }
     }
     else {
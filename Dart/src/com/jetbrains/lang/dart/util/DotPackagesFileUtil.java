@@ -5,6 +5,7 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.Trinity;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -23,6 +24,8 @@ public class DotPackagesFileUtil {
   public static final String DOT_PACKAGES = ".packages";
 
   private static final Key<Pair<Long, Map<String, String>>> MOD_STAMP_TO_PACKAGES_MAP = Key.create("MOD_STAMP_TO_PACKAGES_MAP");
+  private static final Key<Trinity<Long, Map<String, VirtualFile>, DartPackageRootIndex>> MOD_STAMP_TO_PACKAGE_ROOT_INDEX =
+    Key.create("MOD_STAMP_TO_PACKAGE_ROOT_INDEX");
 
   @Nullable
   public static Map<String, String> getPackagesMap(@NotNull final VirtualFile dotPackagesFile) {
@@ -45,6 +48,31 @@ public class DotPackagesFileUtil {
     return Pair.getSecond(data);
   }
 
+  /**
+   * Returns the reverse index of package roots listed in the .packages file, shared by all resolvers using this file.
+   * It is built from the paths of the package folders that have been found, so it is rebuilt if the file is modified
+   * or if a different set of package folders has been found for it.
+   *
+   * @param packageNameToDirMap package folders found for the packages map returned by {@link #getPackagesMap(VirtualFile)}
+   */
+  @NotNull
+  public static DartPackageRootIndex getPackageRootIndex(@NotNull final VirtualFile dotPackagesFile,
+                                                         @NotNull final Map<String, VirtualFile> packageNameToDirMap) {
+    Trinity<Long, Map<String, VirtualFile>, DartPackageRootIndex> data = dotPackagesFile.getUserData(MOD_STAMP_TO_PACKAGE_ROOT_INDEX);
+
+    final long currentTimestamp = dotPackagesFile.getModificationCount();
+    if (data == null || data.first != currentTimestamp || !data.second.equals(packageNameToDirMap)) {
+      final Map<String, String> packageNameToPathMap = new THashMap<>(packageNameToDirMap.size());
+      for (Map.Entry<String, VirtualFile> entry : packageNameToDirMap.entrySet()) {
+        packageNameToPathMap.put(entry.getKey(), entry.getValue().getPath());
+      }
+      data = Trinity.create(currentTimestamp, new THashMap<>(packageNameToDirMap), DartPackageRootIndex.create(packageNameToPathMap));
+      dotPackagesFile.putUserData(MOD_STAMP_TO_PACKAGE_ROOT_INDEX, data);
+    }
+
+    return data.third;
+  }
+
   @Nullable
   private static Map<String, String> loadPackagesMap(@NotNull final VirtualFile dotPackagesFile) {
     try {
@@ -0,0 +1,67 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.fixtures.CodeInsightFixtureTestCase;
+import org.dartlang.analysis.server.protocol.AnalysisError;
+import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
+import org.dartlang.analysis.server.protocol.AnalysisErrorType;
+import org.dartlang.analysis.server.protocol.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class DartServerDataConcurrencyTest extends CodeInsightFixtureTestCase {
+  private static final int FILES = 20;
+  private static final int ERRORS_PER_FILE = 50;
+  private static final int ITERATIONS = 200;
+
+  public void testParallelComputedErrorsAndGetErrors() throws Exception {
+    final DartServerData serverData = new DartServerData(DartAnalysisServerService.getInstance(getProject()));
+    final List<String> filePaths = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      filePaths.add(myFixture.addFileToProject("file" + i + ".dart", "").getVirtualFile().getPath());
+    }
+
+    final GlobalSearchScope scope = GlobalSearchScope.projectScope(getProject());
+    final List<Future<?>> futures = new ArrayList<>();
+
+    for (int thread = 0; thread < 4; thread++) {
+      futures.add(ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        for (int i = 0; i < ITERATIONS; i++) {
+          for (String filePath : filePaths) {
+            assertTrue(serverData.computedErrors(filePath, createErrors(filePath), false));
+          }
+        }
+      }));
+
+      futures.add(ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        for (int i = 0; i < ITERATIONS; i++) {
+          final int size = ReadAction.compute(() -> serverData.getErrors(scope).size());
+          // each file has either no errors yet or a complete list of errors
+          assertEquals(0, size % ERRORS_PER_FILE);
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+
+    assertEquals(FILES * ERRORS_PER_FILE, ReadAction.compute(() -> serverData.getErrors(scope).size()).intValue());
+  }
+
+  private static List<AnalysisError> createErrors(final String filePath) {
+    final List<AnalysisError> errors = new ArrayList<>(ERRORS_PER_FILE);
+    for (int i = 0; i < ERRORS_PER_FILE; i++) {
+      final Location location = new Location(filePath, 0, 0, 1, 1);
+      errors.add(new AnalysisError(AnalysisErrorSeverity.INFO, AnalysisErrorType.HINT, location, "message " + i, null, "code", null,
+                                   null));
+    }
+    return errors;
+  }
+}
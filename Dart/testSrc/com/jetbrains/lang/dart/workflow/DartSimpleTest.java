@@ -3,10 +3,14 @@ package com.jetbrains.lang.dart.workflow;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
 import com.jetbrains.lang.dart.ide.runner.server.vmService.frame.DartVmServiceEvaluator;
+import com.jetbrains.lang.dart.util.DartPackageRootIndex;
 import com.jetbrains.lang.dart.util.DartPsiImplUtil;
+import gnu.trove.THashMap;
 import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+
 public class DartSimpleTest extends TestCase {
   private static void doTestUnquoteDartString(@NotNull final String inputString,
                                               @NotNull final String expectedUnquoted,
@@ -77,4 +81,21 @@ public class DartSimpleTest extends TestCase {
                             "NoSuchMethodError: method not found: 'foo'",
                             "No top-level getter 'foo' declared.");
   }
+
+  public void testPackageRootIndex() {
+    final Map<String, String> packagesMap = new THashMap<>();
+    packagesMap.put("foo", "/cache/foo-1.0/lib");
+    packagesMap.put("bar", "/cache/bar-2.0/lib");
+    packagesMap.put("nested", "/cache/foo-1.0/lib/src/nested");
+    final DartPackageRootIndex index = DartPackageRootIndex.create(packagesMap);
+
+    assertEquals("package:foo/foo.dart", index.getPackageUrl("/cache/foo-1.0/lib/foo.dart", true));
+    assertEquals("package:foo/src/a.dart", index.getPackageUrl("/cache/foo-1.0/lib/src/a.dart", true));
+    assertEquals("package:nested/b.dart", index.getPackageUrl("/cache/foo-1.0/lib/src/nested/b.dart", true));
+    assertEquals("package:bar/", index.getPackageUrl("/cache/bar-2.0/lib", true));
+    assertNull(index.getPackageUrl("/cache/bar-2.0/lib", false));
+    assertNull(index.getPackageUrl("/cache/bar-2.0/libx/a.dart", true));
+    assertNull(index.getPackageUrl("/cache/bar-2.0/pubspec.yaml", true));
+    assertNull(DartPackageRootIndex.EMPTY.getPackageUrl("/cache/foo-1.0/lib/foo.dart", true));
+  }
 }
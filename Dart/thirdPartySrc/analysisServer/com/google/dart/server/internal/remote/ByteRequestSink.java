@@ -73,6 +73,13 @@ public class ByteRequestSink implements RequestSink {
     lineQueue.add(ByteResponseStream.EOF_LINE);
   }
 
+  /**
+   * Returns the number of requests waiting to be written to the server.
+   */
+  public int getQueueSize() {
+    return lineQueue.size();
+  }
+
   public void waitForFlush() {
     while (true) {
       if (lineQueue.isEmpty()) {
@@ -99,15 +99,21 @@ public class ByteResponseStream implements ResponseStream {
     new LinesReaderThread().start();
   }
 
+  /**
+   * Returns the number of responses read from the server and waiting to be processed.
+   */
+  public int getQueueSize() {
+    return lineQueue.size();
+  }
+
   @Override
   public void lastRequestProcessed() {
   }
 
   @Override
   public JsonObject take() throws Exception {
-    String line = lineQueue.take();
-    if (line == EOF_LINE) {
-      lineQueue.add(line);
+    String line = takeText();
+    if (line == null) {
       return null;
     }
     try {
@@ -117,4 +123,14 @@ public class ByteResponseStream implements ResponseStream {
       throw new JsonSyntaxException("Parse server message failed: " + line, e);
     }
   }
+
+  @Override
+  public String takeText() throws Exception {
+    String line = lineQueue.take();
+    if (line == EOF_LINE) {
+      lineQueue.add(line);
+      return null;
+    }
+    return line;
+  }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the communication with the remote analysis server.
+ * <p>
+ * For requests, the round-trip time is measured from the moment a request is queued for the
+ * writer thread to the moment its response is taken by the response reader thread. For
+ * notifications, the time spent processing them on the client side is measured. Together with the
+ * depths of the writer and reader queues this shows whether the time goes to the server, to the
+ * pipe or to the processing in the IDE.
+ * <p>
+ * Message sizes are measured in chars, which is equal to the size in bytes for ASCII JSON.
+ *
+ * @coverage dart.server.remote
+ */
+public class ProtocolMetrics {
+  /**
+   * A histogram with exponential buckets: bucket {@code i} counts values in
+   * {@code [2^(i-1), 2^i)} microseconds, bucket 0 counts values below 1 microsecond.
+   */
+  private static class Histogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+
+    void record(long nanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      int bucket = micros <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+      buckets.incrementAndGet(bucket);
+      count.incrementAndGet();
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile, in microseconds.
+     */
+    long percentile(double percentile) {
+      long total = count.get();
+      if (total == 0) {
+        return 0;
+      }
+      long threshold = (long)Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= threshold) {
+          return 1L << i;
+        }
+      }
+      return 1L << (BUCKETS - 1);
+    }
+  }
+
+  private static class Stats {
+    final AtomicLong count = new AtomicLong();
+    final AtomicLong chars = new AtomicLong();
+    final Histogram time = new Histogram();
+  }
+
+  private static class PendingRequest {
+    final String method;
+    final long startNanos;
+
+    PendingRequest(String method, long startNanos) {
+      this.method = method;
+      this.startNanos = startNanos;
+    }
+  }
+
+  private static final String EVENT_PREFIX = "{\"event\":\"";
+
+  private final ConcurrentMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Stats> requestStats = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Stats> notificationStats = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the event name if the given response text is a notification, as written by the server,
+   * otherwise {@code null}. Doesn't parse the text.
+   */
+  public static String getNotificationEvent(String text) {
+    if (!text.startsWith(EVENT_PREFIX)) {
+      return null;
+    }
+    int end = text.indexOf('"', EVENT_PREFIX.length());
+    return end < 0 ? null : text.substring(EVENT_PREFIX.length(), end);
+  }
+
+  public void requestSent(String id, String method) {
+    getStats(requestStats, method).count.incrementAndGet();
+    pendingRequests.put(id, new PendingRequest(method, System.nanoTime()));
+  }
+
+  public void responseReceived(String id, int chars) {
+    PendingRequest request = pendingRequests.remove(id);
+    if (request == null) {
+      return;
+    }
+    Stats stats = getStats(requestStats, request.method);
+    stats.chars.addAndGet(chars);
+    stats.time.record(System.nanoTime() - request.startNanos);
+  }
+
+  public void notificationProcessed(String event, int chars, long processingNanos) {
+    Stats stats = getStats(notificationStats, event);
+    stats.count.incrementAndGet();
+    stats.chars.addAndGet(chars);
+    stats.time.record(processingNanos);
+  }
+
+  /**
+   * Forgets requests which will never get a response, e.g. because the server has been restarted.
+   */
+  public void clearPendingRequests() {
+    pendingRequests.clear();
+  }
+
+  /**
+   * Returns a human readable report of the collected metrics.
+   *
+   * @param requestQueueDepth the number of requests waiting for the writer thread, or -1 if unknown
+   * @param responseQueueDepth the number of responses waiting for the reader thread, or -1 if unknown
+   */
+  public String getReport(int requestQueueDepth, int responseQueueDepth) {
+    StringBuilder report = new StringBuilder();
+    report.append("Request queue depth: ").append(requestQueueDepth).append('\n');
+    report.append("Response queue depth: ").append(responseQueueDepth).append('\n');
+    report.append("Requests awaiting response: ").append(pendingRequests.size()).append('\n');
+    report.append('\n');
+    report.append("Requests (round-trip time):\n");
+    appendStats(report, requestStats);
+    report.append('\n');
+    report.append("Notifications (processing time):\n");
+    appendStats(report, notificationStats);
+    return report.toString();
+  }
+
+  private static void appendStats(StringBuilder report, Map<String, Stats> statsMap) {
+    report.append(String.format("  %-40s %10s %12s %10s %10s%n", "name", "count", "KB", "p50 ms", "p99 ms"));
+    for (Map.Entry<String, Stats> entry : new TreeMap<>(statsMap).entrySet()) {
+      Stats stats = entry.getValue();
+      report.append(String.format("  %-40s %10d %12d %10.1f %10.1f%n",
+                                  entry.getKey(),
+                                  stats.count.get(),
+                                  stats.chars.get() / 1024,
+                                  stats.time.percentile(50) / 1000.0,
+                                  stats.time.percentile(99) / 1000.0));
+    }
+  }
+
+  private static Stats getStats(ConcurrentMap<String, Stats> statsMap, String name) {
+    Stats stats = statsMap.get(name);
+    if (stats == null) {
+      Stats newStats = new Stats();
+      stats = statsMap.putIfAbsent(name, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+}
@@ -28,7 +28,9 @@ import com.google.dart.server.utilities.instrumentation.InstrumentationBuilder;
 import com.google.dart.server.utilities.logging.Logging;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import org.dartlang.analysis.server.protocol.*;
 import org.osgi.framework.Version;
 
@@ -103,6 +105,14 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
 
   private final List<AnalysisServerStatusListener> statusListenerList = new ArrayList<AnalysisServerStatusListener>();
 
+  /**
+   * Decodes the largest notifications without building a {@link JsonObject} tree. Used only from
+   * the {@link ServerResponseReaderThread}.
+   */
+  private final StreamingNotificationProcessor streamingNotificationProcessor = new StreamingNotificationProcessor(listener);
+
+  private final ProtocolMetrics metrics = new ProtocolMetrics();
+
   /**
    * A mapping between {@link String} ids' and the associated {@link Consumer} that was passed when
    * the request was made.
@@ -110,7 +120,13 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   private final Map<String, Consumer> consumerMap = Maps.newHashMap();
 
   /**
-   * The object used to synchronize access to {@link #consumerMap}.
+   * The reverse of {@link #consumerMap}, used to discard a {@link Consumer} without scanning all
+   * pending requests. Consumers are compared by identity.
+   */
+  private final Map<Consumer, String> consumerToIdMap = Maps.newIdentityHashMap();
+
+  /**
+   * The object used to synchronize access to {@link #consumerMap} and {@link #consumerToIdMap}.
    */
   private final Object consumerMapLock = new Object();
 
@@ -702,7 +718,58 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   }
 
   private void processResponse(JsonObject response) throws Exception {
-    notifyResponseListeners(response);
+    notifyResponseListeners(response.toString());
+    processParsedResponse(response, 0);
+  }
+
+  /**
+   * Processes the given response JSON text. The frequent and large notifications are decoded
+   * directly from the text, everything else is parsed into a {@link JsonObject} first.
+   */
+  private void processResponse(String text) throws Exception {
+    String event = ProtocolMetrics.getNotificationEvent(text);
+    if (event == null) {
+      processResponseText(text);
+      return;
+    }
+    long startNanos = System.nanoTime();
+    try {
+      processResponseText(text);
+    }
+    finally {
+      metrics.notificationProcessed(event, text.length(), System.nanoTime() - startNanos);
+    }
+  }
+
+  private void processResponseText(String text) throws Exception {
+    notifyResponseListeners(text);
+    Runnable notification = null;
+    try {
+      notification = streamingNotificationProcessor.decode(text);
+    }
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      // malformed or unexpected JSON, let the tree based parsing report it
+    }
+    // dispatched outside of the try, so a listener failure doesn't cause the second dispatch
+    if (notification != null) {
+      notification.run();
+      return;
+    }
+    JsonObject response;
+    try {
+      response = (JsonObject)new JsonParser().parse(text);
+    }
+    catch (JsonSyntaxException e) {
+      // Include the line in the message so that we can better diagnose the problem
+      throw new JsonSyntaxException("Parse server message failed: " + text, e);
+    }
+    processParsedResponse(response, text.length());
+  }
+
+  /**
+   * @param responseLength the length of the response text, used for metrics only
+   */
+  private void processParsedResponse(JsonObject response, int responseLength) throws Exception {
     // handle notification
     if (processNotification(response)) {
       return;
@@ -713,6 +780,7 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
       return;
     }
     String idString = idJsonPrimitive.getAsString();
+    metrics.responseReceived(idString, responseLength);
     // prepare consumer
     Consumer consumer;
     synchronized (consumerMapLock) {
@@ -848,7 +916,10 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     }
 
     synchronized (consumerMapLock) {
-      consumerMap.remove(idString);
+      Consumer removed = consumerMap.remove(idString);
+      if (removed != null) {
+        consumerToIdMap.remove(removed, idString);
+      }
     }
   }
 
@@ -861,11 +932,11 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     }
   }
 
-  private void notifyResponseListeners(JsonObject response) {
+  private void notifyResponseListeners(String response) {
     synchronized (responseListenerList) {
       List<ResponseListener> listeners = ImmutableList.copyOf(responseListenerList);
       for (ResponseListener listener : listeners) {
-        listener.onResponse(response.toString());
+        listener.onResponse(response);
       }
     }
   }
@@ -890,8 +961,11 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
    */
   public void sendRequestToServer(String id, JsonObject request, Consumer consumer) {
     notifyRequestListeners(request);
+    JsonElement method = request.get("method");
+    metrics.requestSent(id, method != null && method.isJsonPrimitive() ? method.getAsString() : "unknown");
     synchronized (consumerMapLock) {
       consumerMap.put(id, consumer);
+      consumerToIdMap.put(consumer, id);
     }
     lastRequestTime.set(System.currentTimeMillis());
     synchronized (requestSinkLock) {
@@ -899,9 +973,29 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     }
   }
 
+  /**
+   * Stops waiting for the response to the latest request associated with the given {@link Consumer}.
+   * The protocol has no way to cancel a request on the server side, so the response is still
+   * received, but it is dropped without being processed and the {@link Consumer} is not notified.
+   *
+   * @param consumer the {@link Consumer} that was passed when the request was made
+   */
+  public void discardConsumer(Consumer consumer) {
+    synchronized (consumerMapLock) {
+      String id = consumerToIdMap.remove(consumer);
+      if (id != null) {
+        consumerMap.remove(id, consumer);
+      }
+    }
+  }
+
   private void startServer() throws Exception {
     socket.start();
-    consumerMap.clear();
+    synchronized (consumerMapLock) {
+      consumerMap.clear();
+      consumerToIdMap.clear();
+    }
+    metrics.clearPendingRequests();
     requestSink = socket.getRequestSink();
     responseStream = socket.getResponseStream();
     errorStream = socket.getErrorStream();
@@ -1054,6 +1148,18 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     }
   }
 
+  /**
+   * Returns a human readable report of request counts, round-trip latencies, notification volumes
+   * and processing times, and of the depths of the request and response queues.
+   */
+  public String getProtocolMetricsReport() {
+    RequestSink sink = socket.getRequestSink();
+    ResponseStream stream = socket.getResponseStream();
+    int requestQueueDepth = sink instanceof ByteRequestSink ? ((ByteRequestSink)sink).getQueueSize() : -1;
+    int responseQueueDepth = stream instanceof ByteResponseStream ? ((ByteResponseStream)stream).getQueueSize() : -1;
+    return metrics.getReport(requestQueueDepth, responseQueueDepth);
+  }
+
   public long getLastRequestMillis() {
     return lastRequestTime.get();
   }
@@ -1118,7 +1224,7 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     public void run() {
       while (true) {
         try {
-          JsonObject response = stream.take();
+          String response = stream.takeText();
           if (response == null) {
             return;
           }
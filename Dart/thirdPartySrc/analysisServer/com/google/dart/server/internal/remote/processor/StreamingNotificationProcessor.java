@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2014, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote.processor;
+
+import com.google.dart.server.AnalysisServerListener;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.dartlang.analysis.server.protocol.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the most frequent and the largest notifications ({@code analysis.errors},
+ * {@code analysis.highlights} and {@code analysis.navigation}) straight from the response text
+ * with a streaming {@link JsonReader}, without building an intermediate {@link JsonObject} tree.
+ * <p>
+ * Small repeated strings (highlight types, error severities, navigation kinds, etc.) are shared
+ * between notifications, so decoding a notification allocates little more than the resulting
+ * protocol objects. Instances are not thread-safe and are expected to be used from the single
+ * response reader thread.
+ *
+ * @coverage dart.server.remote
+ */
+public class StreamingNotificationProcessor {
+  private static final String ANALYSIS_NOTIFICATION_ERRORS = "analysis.errors";
+  private static final String ANALYSIS_NOTIFICATION_HIGHTLIGHTS = "analysis.highlights";
+  private static final String ANALYSIS_NOTIFICATION_NAVIGATION = "analysis.navigation";
+
+  /**
+   * Bounds the size of {@link #sharedStrings}, it is cleared when the limit is reached.
+   */
+  private static final int MAX_SHARED_STRINGS = 4096;
+
+  private final AnalysisServerListener listener;
+
+  private final Map<String, String> sharedStrings = new HashMap<>();
+
+  private int[] intBuffer = new int[16];
+
+  public StreamingNotificationProcessor(AnalysisServerListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Decodes the given JSON text if it is a supported notification. Returns the notification, which
+   * passes the decoded values to the listener when run, or {@code null} if the text must be
+   * processed as a {@link JsonObject}. Nothing is passed to the listener while decoding, so a
+   * decoding failure never leaves a notification half delivered.
+   */
+  public Runnable decode(String text) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(text));
+    reader.beginObject();
+    // the server always writes "event" before "params", fall back to the tree model otherwise
+    if (!reader.hasNext() || !"event".equals(reader.nextName()) || reader.peek() != JsonToken.STRING) {
+      return null;
+    }
+    String event = reader.nextString();
+    if (!ANALYSIS_NOTIFICATION_ERRORS.equals(event) &&
+        !ANALYSIS_NOTIFICATION_HIGHTLIGHTS.equals(event) &&
+        !ANALYSIS_NOTIFICATION_NAVIGATION.equals(event)) {
+      return null;
+    }
+    if (!reader.hasNext() || !"params".equals(reader.nextName())) {
+      return null;
+    }
+    if (ANALYSIS_NOTIFICATION_ERRORS.equals(event)) {
+      return processErrors(reader);
+    }
+    if (ANALYSIS_NOTIFICATION_HIGHTLIGHTS.equals(event)) {
+      return processHighlights(reader);
+    }
+    return processNavigation(reader);
+  }
+
+  private Runnable processErrors(JsonReader reader) throws IOException {
+    String file = null;
+    List<AnalysisError> errors = AnalysisError.EMPTY_LIST;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = reader.nextString();
+      }
+      else if ("errors".equals(name)) {
+        errors = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          errors.add(readAnalysisError(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (file == null) {
+      return null;
+    }
+    final String errorsFile = file;
+    final List<AnalysisError> fileErrors = errors;
+    return () -> listener.computedErrors(errorsFile, fileErrors);
+  }
+
+  private Runnable processHighlights(JsonReader reader) throws IOException {
+    String file = null;
+    List<HighlightRegion> regions = HighlightRegion.EMPTY_LIST;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = reader.nextString();
+      }
+      else if ("regions".equals(name)) {
+        regions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readHighlightRegion(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (file == null) {
+      return null;
+    }
+    final String highlightsFile = file;
+    final List<HighlightRegion> fileRegions = regions;
+    return () -> listener.computedHighlights(highlightsFile, fileRegions);
+  }
+
+  private Runnable processNavigation(JsonReader reader) throws IOException {
+    String file = null;
+    String[] targetFiles = null;
+    List<NavigationTarget> targets = null;
+    List<NavigationRegion> regions = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = reader.nextString();
+      }
+      else if ("files".equals(name)) {
+        List<String> files = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          files.add(reader.nextString());
+        }
+        reader.endArray();
+        targetFiles = files.toArray(new String[0]);
+      }
+      else if ("targets".equals(name)) {
+        targets = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          targets.add(readNavigationTarget(reader));
+        }
+        reader.endArray();
+      }
+      else if ("regions".equals(name)) {
+        regions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readNavigationRegion(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (file == null || targetFiles == null || targets == null || regions == null) {
+      return null;
+    }
+    // the properties may come in any order, so link the indices only when everything is read
+    for (NavigationTarget target : targets) {
+      target.lookupFile(targetFiles);
+    }
+    for (NavigationRegion region : regions) {
+      region.lookupTargets(targets);
+    }
+    final String navigationFile = file;
+    final List<NavigationRegion> fileRegions = regions;
+    return () -> listener.computedNavigation(navigationFile, fileRegions);
+  }
+
+  private AnalysisError readAnalysisError(JsonReader reader) throws IOException {
+    String severity = null;
+    String type = null;
+    Location location = null;
+    String message = null;
+    String correction = null;
+    String code = null;
+    String url = null;
+    Boolean hasFix = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("severity".equals(name)) {
+        severity = readSharedString(reader);
+      }
+      else if ("type".equals(name)) {
+        type = readSharedString(reader);
+      }
+      else if ("location".equals(name)) {
+        location = readLocation(reader);
+      }
+      else if ("message".equals(name)) {
+        message = reader.nextString();
+      }
+      else if ("correction".equals(name)) {
+        correction = readOptionalString(reader);
+      }
+      else if ("code".equals(name)) {
+        code = reader.peek() == JsonToken.NULL ? readOptionalString(reader) : readSharedString(reader);
+      }
+      else if ("url".equals(name)) {
+        url = readOptionalString(reader);
+      }
+      else if ("hasFix".equals(name)) {
+        if (reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+        }
+        else {
+          hasFix = reader.nextBoolean();
+        }
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new AnalysisError(severity, type, location, message, correction, code, url, hasFix);
+  }
+
+  private Location readLocation(JsonReader reader) throws IOException {
+    String file = null;
+    int offset = 0;
+    int length = 0;
+    int startLine = 0;
+    int startColumn = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("file".equals(name)) {
+        file = readSharedString(reader);
+      }
+      else if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else if ("startLine".equals(name)) {
+        startLine = reader.nextInt();
+      }
+      else if ("startColumn".equals(name)) {
+        startColumn = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Location(file, offset, length, startLine, startColumn);
+  }
+
+  private HighlightRegion readHighlightRegion(JsonReader reader) throws IOException {
+    String type = null;
+    int offset = 0;
+    int length = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("type".equals(name)) {
+        type = readSharedString(reader);
+      }
+      else if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new HighlightRegion(type, offset, length);
+  }
+
+  private NavigationRegion readNavigationRegion(JsonReader reader) throws IOException {
+    int offset = 0;
+    int length = 0;
+    int[] targets = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else if ("targets".equals(name)) {
+        targets = readIntArray(reader);
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new NavigationRegion(offset, length, targets != null ? targets : new int[0]);
+  }
+
+  private NavigationTarget readNavigationTarget(JsonReader reader) throws IOException {
+    String kind = null;
+    int fileIndex = 0;
+    int offset = 0;
+    int length = 0;
+    int startLine = 0;
+    int startColumn = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("kind".equals(name)) {
+        kind = readSharedString(reader);
+      }
+      else if ("fileIndex".equals(name)) {
+        fileIndex = reader.nextInt();
+      }
+      else if ("offset".equals(name)) {
+        offset = reader.nextInt();
+      }
+      else if ("length".equals(name)) {
+        length = reader.nextInt();
+      }
+      else if ("startLine".equals(name)) {
+        startLine = reader.nextInt();
+      }
+      else if ("startColumn".equals(name)) {
+        startColumn = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new NavigationTarget(kind, fileIndex, offset, length, startLine, startColumn);
+  }
+
+  private int[] readIntArray(JsonReader reader) throws IOException {
+    int size = 0;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == intBuffer.length) {
+        intBuffer = Arrays.copyOf(intBuffer, size * 2);
+      }
+      intBuffer[size++] = reader.nextInt();
+    }
+    reader.endArray();
+    return Arrays.copyOf(intBuffer, size);
+  }
+
+  private static String readOptionalString(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    return reader.nextString();
+  }
+
+  /**
+   * Reads a string which is likely to be repeated many times, such as a highlight type or a file
+   * path, and returns the previously seen equal instance if there is one.
+   */
+  private String readSharedString(JsonReader reader) throws IOException {
+    String value = reader.nextString();
+    String shared = sharedStrings.get(value);
+    if (shared != null) {
+      return shared;
+    }
+    if (sharedStrings.size() >= MAX_SHARED_STRINGS) {
+      sharedStrings.clear();
+    }
+    sharedStrings.put(value, value);
+    return value;
+  }
+}
@@ -9,6 +9,7 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 
@@ -20,6 +21,7 @@ public abstract class CompilerMessageHandlerBase {
   private static final Logger LOG = Logger.getInstance(CompilerMessageHandlerBase.class.getName());
 
   private final CompileContext myContext;
+  private final MessageHandler myMessageHandler;
   private final boolean myAsc20;
   private final String myCompilerName;
 
@@ -33,7 +35,18 @@ public abstract class CompilerMessageHandlerBase {
    * Implementations must call {@link #registerCompilationFinished()} at the end
    */
   public CompilerMessageHandlerBase(final CompileContext context, final boolean asc20, final String compilerName) {
+    this(context, context, asc20, compilerName);
+  }
+
+  /**
+   * @param messageHandler receives compiler messages, {@code context} is used to check for cancellation
+   */
+  public CompilerMessageHandlerBase(final CompileContext context,
+                                    final MessageHandler messageHandler,
+                                    final boolean asc20,
+                                    final String compilerName) {
     myContext = context;
+    myMessageHandler = messageHandler;
     myAsc20 = asc20;
     myCompilerName = compilerName;
   }
@@ -82,7 +95,7 @@ public abstract class CompilerMessageHandlerBase {
 
     if (text.startsWith("Exception in thread \"") || text.contains(FlexCommonUtils.COULD_NOT_CREATE_JVM)) {
       reportPreviousInfoMessage();
-      myContext.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.ERROR, text));
+      myMessageHandler.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.ERROR, text));
       myCompilationFailed = true;
       return;
     }
@@ -100,12 +113,12 @@ public abstract class CompilerMessageHandlerBase {
           FlexCommonUtils.getSourcePathAndLineFromASC20Message(myPreviousUnreportedInfoMessage);
         if (sourcePathAndLine == null) {
           reportPreviousInfoMessage();
-          myContext.processMessage(new CompilerMessage(myCompilerName, kind, usefulMessage));
+          myMessageHandler.processMessage(new CompilerMessage(myCompilerName, kind, usefulMessage));
         }
         else {
           myPreviousUnreportedInfoMessage = null;
           if (!isNotSupportedOptionFromGeneratedConfig(usefulMessage, sourcePathAndLine.first)) {
-            myContext.processMessage(
+            myMessageHandler.processMessage(
               new CompilerMessage(myCompilerName, kind, usefulMessage, sourcePathAndLine.first, -1, -1, -1, sourcePathAndLine.second, 0));
           }
         }
@@ -135,12 +148,12 @@ public abstract class CompilerMessageHandlerBase {
         fullMessage.append(message);
 
         reportPreviousInfoMessage();
-        myContext.processMessage(new CompilerMessage(myCompilerName,
-                                                     kind,
-                                                     fullMessage.toString(),
-                                                     sourceFileExists ? sourceFilePath : null, -1, -1, -1,
-                                                     line != null ? Integer.parseInt(line) : 0,
-                                                     column != null ? Integer.parseInt(column) : 0));
+        myMessageHandler.processMessage(new CompilerMessage(myCompilerName,
+                                                            kind,
+                                                            fullMessage.toString(),
+                                                            sourceFileExists ? sourceFilePath : null, -1, -1, -1,
+                                                            line != null ? Integer.parseInt(line) : 0,
+                                                            column != null ? Integer.parseInt(column) : 0));
         myCompilationFailed |= kind == BuildMessage.Kind.ERROR;
         return;
       }
@@ -148,7 +161,7 @@ public abstract class CompilerMessageHandlerBase {
 
     if (text.startsWith(ERROR_PREFIX)) {
       reportPreviousInfoMessage();
-      myContext.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.ERROR, text.substring(ERROR_PREFIX.length())));
+      myMessageHandler.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.ERROR, text.substring(ERROR_PREFIX.length())));
       myCompilationFailed = true;
       return;
     }
@@ -157,7 +170,7 @@ public abstract class CompilerMessageHandlerBase {
     myPreviousUnreportedInfoMessage = text;
 
     if (text.contains(FlexCommonUtils.OUT_OF_MEMORY) || text.contains(FlexCommonUtils.JAVA_HEAP_SPACE)) {
-      myContext.processMessage(
+      myMessageHandler.processMessage(
         new CompilerMessage(myCompilerName, BuildMessage.Kind.ERROR,
                             FlexCommonBundle.message("increase.flex.compiler.heap", CommonBundle.settingsActionPath())));
       myCompilationFailed = true;
@@ -184,7 +197,7 @@ public abstract class CompilerMessageHandlerBase {
           !myPreviousUnreportedInfoMessage.equals("<accessible>false</accessible>") &&
           !myPreviousUnreportedInfoMessage.equals("</managers>") &&
           !myPreviousUnreportedInfoMessage.equals("<static-link-runtime-shared-libraries>false</static-link-runtime-shared-libraries>")) {
-        myContext.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.INFO, myPreviousUnreportedInfoMessage));
+        myMessageHandler.processMessage(new CompilerMessage(myCompilerName, BuildMessage.Kind.INFO, myPreviousUnreportedInfoMessage));
       }
       myPreviousUnreportedInfoMessage = null;
     }
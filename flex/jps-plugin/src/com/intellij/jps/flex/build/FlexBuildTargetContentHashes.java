@@ -0,0 +1,128 @@
+// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.build.FlexBuildTarget;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.storage.AbstractStateStorage;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Content hashes of the source files of a Flex build target as of its last successful compilation, stored in the data
+ * directory of the target. JPS marks a file dirty when its timestamp changes; a dirty file with the same content as
+ * at the last compilation, e.g. saved without changes or touched by a VCS operation, doesn't cause the recompilation.
+ * Only dirty files are hashed, so the check takes time proportional to the number of changed files.
+ */
+class FlexBuildTargetContentHashes implements Closeable {
+
+  private static final Logger LOG = Logger.getInstance(FlexBuildTargetContentHashes.class.getName());
+  private static final String STORAGE_NAME = "flex-content-hashes";
+
+  private static final DataExternalizer<Long> HASH_EXTERNALIZER = new DataExternalizer<Long>() {
+    @Override
+    public void save(@NotNull final DataOutput out, final Long value) throws IOException {
+      out.writeLong(value);
+    }
+
+    @Override
+    public Long read(@NotNull final DataInput in) throws IOException {
+      return in.readLong();
+    }
+  };
+
+  private final AbstractStateStorage<String, Long> myStorage;
+  // hashes of the dirty files, stored only after the compilation has succeeded
+  private final Map<String, Long> myNewHashes = new THashMap<>();
+
+  private FlexBuildTargetContentHashes(@NotNull final AbstractStateStorage<String, Long> storage) {
+    myStorage = storage;
+  }
+
+  @NotNull
+  static FlexBuildTargetContentHashes open(@NotNull final CompileContext context,
+                                           @NotNull final FlexBuildTarget target) throws IOException {
+    final File dataRoot = context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target);
+    final File storageFile = new File(dataRoot, STORAGE_NAME);
+    try {
+      return new FlexBuildTargetContentHashes(new AbstractStateStorage<>(storageFile, EnumeratorStringDescriptor.INSTANCE,
+                                                                         HASH_EXTERNALIZER));
+    }
+    catch (IOException e) {
+      LOG.info("Recreating corrupted storage " + storageFile, e);
+      final File[] storageFiles = dataRoot.listFiles((dir, name) -> name.startsWith(STORAGE_NAME));
+      if (storageFiles != null) {
+        for (File file : storageFiles) {
+          FileUtil.delete(file);
+        }
+      }
+      return new FlexBuildTargetContentHashes(new AbstractStateStorage<>(storageFile, EnumeratorStringDescriptor.INSTANCE,
+                                                                         HASH_EXTERNALIZER));
+    }
+  }
+
+  /**
+   * @return paths of the dirty files whose content differs from the last successful compilation or is unknown
+   */
+  @NotNull
+  List<String> getChangedFilePaths(@NotNull final Collection<String> dirtyFilePaths) throws IOException {
+    final List<String> result = new ArrayList<>();
+    for (String path : dirtyFilePaths) {
+      final String key = FileUtil.toSystemIndependentName(path);
+      final Long hash = computeHash(new File(path));
+      if (hash == null || !hash.equals(myStorage.getState(key))) {
+        result.add(path);
+      }
+      if (hash != null) {
+        myNewHashes.put(key, hash);
+      }
+    }
+    return result;
+  }
+
+  void removeFiles(@NotNull final Collection<String> removedFilePaths) throws IOException {
+    for (String path : removedFilePaths) {
+      myStorage.remove(FileUtil.toSystemIndependentName(path));
+    }
+  }
+
+  /**
+   * Must be called only after all build configurations of the target have been compiled successfully or found up to date.
+   */
+  void compilationSucceeded() throws IOException {
+    for (Map.Entry<String, Long> entry : myNewHashes.entrySet()) {
+      myStorage.update(entry.getKey(), entry.getValue());
+    }
+    myNewHashes.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    myStorage.close();
+  }
+
+  @Nullable
+  private static Long computeHash(@NotNull final File file) {
+    try {
+      final byte[] content = FileUtil.loadFileBytes(file);
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      // the length makes collisions of CRC32 less likely
+      return (long)content.length << 32 | crc.getValue();
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+}
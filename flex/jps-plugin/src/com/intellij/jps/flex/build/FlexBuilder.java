@@ -20,6 +20,7 @@ import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.concurrency.Semaphore;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
@@ -27,6 +28,7 @@ import org.jetbrains.jps.builders.DirtyFilesHolder;
 import org.jetbrains.jps.builders.FileProcessor;
 import org.jetbrains.jps.cmdline.ProjectDescriptor;
 import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.ProjectBuildException;
 import org.jetbrains.jps.incremental.StopBuildException;
 import org.jetbrains.jps.incremental.TargetBuilder;
@@ -36,18 +38,20 @@ import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTarget> {
 
   private static final Logger LOG = Logger.getInstance(FlexBuilder.class.getName());
-  private JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
+  private JpsBuiltInFlexCompilerPool myBuiltInCompilerPool;
 
   private enum Status {Ok, Failed, Cancelled}
 
@@ -64,15 +68,15 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   @Override
   public void buildStarted(final CompileContext context) {
     super.buildStarted(context);
-    myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(context.getProjectDescriptor().getProject());
+    myBuiltInCompilerPool = new JpsBuiltInFlexCompilerPool(context.getProjectDescriptor().getProject());
   }
 
   @Override
   public void buildFinished(final CompileContext context) {
-    LOG.assertTrue(myBuiltInCompilerHandler.getActiveCompilationsNumber() == 0,
-                   myBuiltInCompilerHandler.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
-    myBuiltInCompilerHandler.stopCompilerProcess();
-    myBuiltInCompilerHandler = null;
+    LOG.assertTrue(myBuiltInCompilerPool.getActiveCompilationsNumber() == 0,
+                   myBuiltInCompilerPool.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
+    myBuiltInCompilerPool.stopCompilerProcesses();
+    myBuiltInCompilerPool = null;
 
     FlexCommonUtils.deleteTempFlexConfigFiles(context.getProjectDescriptor().getProject().getName());
 
@@ -108,12 +112,36 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
       LOG.debug(b.toString());
     }
 
-    final JpsFlexBuildConfiguration mainBC = buildTarget.getBC();
+    try (FlexBuildTargetContentHashes contentHashes = FlexBuildTargetContentHashes.open(context, buildTarget)) {
+      contentHashes.removeFiles(holder.getRemovedFiles(buildTarget));
+      // hashes of all dirty files are collected even if the build is forced
+      Collection<String> changedFilePaths = contentHashes.getChangedFilePaths(dirtyFilePaths);
+      if (context.getScope().isBuildForced(buildTarget)) {
+        changedFilePaths = dirtyFilePaths;
+      }
+      if (changedFilePaths.size() < dirtyFilePaths.size()) {
+        LOG.debug("content not changed: " + (dirtyFilePaths.size() - changedFilePaths.size()) + " dirty file(s)");
+      }
 
+      if (build(buildTarget.getBC(), changedFilePaths, dirtyFilePaths, outputConsumer, context)) {
+        contentHashes.compilationSucceeded();
+      }
+    }
+  }
+
+  /**
+   * @param changedFilePaths dirty files whose content has changed since the last successful compilation
+   * @return {@code true} if all build configurations have been compiled successfully or are up to date
+   */
+  private boolean build(final JpsFlexBuildConfiguration mainBC,
+                        final Collection<String> changedFilePaths,
+                        final Collection<String> dirtyFilePaths,
+                        final BuildOutputConsumer outputConsumer,
+                        final CompileContext context) throws ProjectBuildException, IOException {
     final List<JpsFlexBuildConfiguration> bcsToCompile = getAllBCsToCompile(mainBC);
 
     if (!FlexCommonUtils.isFlexUnitBC(mainBC) && !isFlexmojosBCWithUpdatedConfigFile(mainBC)) {
-      if (dirtyFilePaths.isEmpty()) {
+      if (changedFilePaths.isEmpty()) {
         boolean outputFilesExist = true;
 
         for (JpsFlexBuildConfiguration bc : bcsToCompile) {
@@ -125,43 +153,83 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
         }
 
         if (outputFilesExist) {
-          return;
+          return true;
         }
       }
-      else if (mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, dirtyFilePaths)) {
+      else if (mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, changedFilePaths)) {
         LOG.debug("only wrapper files dirty");
         FlexBuilderUtils.performPostCompileActions(context, mainBC, dirtyFilePaths, outputConsumer);
-        return;
+        return true;
       }
     }
 
-    for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+    final Status mainStatus = compileBuildConfiguration(context, context, mainBC, myBuiltInCompilerPool);
+    if (!handleCompilationResult(context, mainBC, mainBC, mainStatus, dirtyFilePaths, outputConsumer)) return false;
 
-      switch (status) {
-        case Ok:
-          outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
-          FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.successful")));
-          break;
+    // RLMs and runtime stylesheets don't depend on each other, only on the main BC
+    final List<JpsFlexBuildConfiguration> dependentBCs = bcsToCompile.subList(1, bcsToCompile.size());
+    if (dependentBCs.isEmpty()) return true;
 
-        case Failed:
-          final String message = bc.getOutputType() == OutputType.Application
-                                 ? FlexCommonBundle.message("compilation.failed")
-                                 : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
-          context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+    final ParallelCompilation compilation =
+      new ParallelCompilation(context, dependentBCs, myBuiltInCompilerPool, getParallelism(context, dependentBCs));
+    try {
+      for (int i = 0; i < dependentBCs.size(); i++) {
+        final JpsFlexBuildConfiguration bc = dependentBCs.get(i);
+        final Status status = compilation.waitFor(i);
+        if (!handleCompilationResult(context, mainBC, bc, status, dirtyFilePaths, outputConsumer)) return false;
+      }
+    }
+    finally {
+      compilation.stop();
+    }
+    return true;
+  }
 
-          throw new StopBuildException();
+  /**
+   * @return {@code false} if the build of the target must not continue
+   */
+  private static boolean handleCompilationResult(final CompileContext context,
+                                                 final JpsFlexBuildConfiguration mainBC,
+                                                 final JpsFlexBuildConfiguration bc,
+                                                 final Status status,
+                                                 final Collection<String> dirtyFilePaths,
+                                                 final BuildOutputConsumer outputConsumer) throws ProjectBuildException, IOException {
+    switch (status) {
+      case Ok:
+        outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
+        FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.successful")));
+        break;
+
+      case Failed:
+        final String message = bc.getOutputType() == OutputType.Application
+                               ? FlexCommonBundle.message("compilation.failed")
+                               : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
+        context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+
+        throw new StopBuildException();
+
+      case Cancelled:
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.cancelled")));
+        return false;
+    }
+    return true;
+  }
 
-        case Cancelled:
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.cancelled")));
-          return;
-      }
+  private static int getParallelism(final CompileContext context, final List<JpsFlexBuildConfiguration> bcs) {
+    // temporary config files are named after BC specifiers, so BCs with equal specifiers must not be compiled simultaneously
+    final Set<String> specifiers = new THashSet<>();
+    for (JpsFlexBuildConfiguration bc : bcs) {
+      if (!specifiers.add(FlexCommonUtils.getBCSpecifier(bc))) return 1;
     }
+
+    final int maxParallelCompilations =
+      JpsFlexCompilerProjectExtension.getInstance(context.getProjectDescriptor().getProject()).MAX_PARALLEL_COMPILATIONS;
+    return Math.max(1, Math.min(bcs.size(), maxParallelCompilations));
   }
 
   /**
@@ -281,9 +349,13 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     return cssBC;
   }
 
+  /**
+   * @param messageHandler receives compiler messages; progress messages are always passed to {@code context}
+   */
   private static Status compileBuildConfiguration(final CompileContext context,
+                                                  final MessageHandler messageHandler,
                                                   final JpsFlexBuildConfiguration bc,
-                                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+                                                  final JpsBuiltInFlexCompilerPool builtInCompilerPool) {
     setProgressMessage(context, bc);
 
     final String compilerName = FlexBuilderUtils.getCompilerName(bc);
@@ -293,15 +365,15 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
       final String outputFilePath = bc.getActualOutputFilePath();
 
       if (!ensureCanCreateFile(new File(outputFilePath))) {
-        context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR,
-                                                   FlexCommonBundle.message("failed.to.create.file", bc.getActualOutputFilePath())));
+        messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR,
+                                                          FlexCommonBundle.message("failed.to.create.file", bc.getActualOutputFilePath())));
         return Status.Failed;
       }
 
-      return doCompile(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      return doCompile(context, messageHandler, bc, configFiles, compilerName, builtInCompilerPool);
     }
     catch (IOException e) {
-      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
+      messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
       return Status.Failed;
     }
   }
@@ -348,10 +420,11 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   }
 
   private static Status doCompile(final CompileContext context,
+                                  final MessageHandler messageHandler,
                                   final JpsFlexBuildConfiguration bc,
                                   final List<File> configFiles,
                                   final String compilerName,
-                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+                                  final JpsBuiltInFlexCompilerPool builtInCompilerPool) {
     final boolean app = bc.getOutputType() != OutputType.Library;
     final JpsSdk<?> sdk = bc.getSdk();
     assert sdk != null;
@@ -360,12 +433,18 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                           FlexCommonUtils.containsASC20(sdk.getHomePath()) &&
                           (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
                            FlexCommonUtils.isAirSdkWithoutFlex(sdk));
-    final boolean builtIn = !asc20 &&
-                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
-                            builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+    final JpsBuiltInFlexCompilerHandler builtInCompilerHandler =
+      !asc20 && JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER
+      ? builtInCompilerPool.acquire(sdk.getHomePath())
+      : null;
 
-    if (builtIn) {
-      return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+    if (builtInCompilerHandler != null) {
+      try {
+        return doCompileWithBuiltInCompiler(context, messageHandler, bc, configFiles, compilerName, builtInCompilerHandler);
+      }
+      finally {
+        builtInCompilerPool.release(builtInCompilerHandler);
+      }
     }
 
     final List<String> compilerCommand = asc20 ? getASC20Command(bc.getModule().getProject(), sdk, app)
@@ -380,7 +459,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
       final Process process = processBuilder.start();
 
       final FlexCompilerProcessHandler processHandler =
-        new FlexCompilerProcessHandler(context, process, asc20, compilerName, StringUtil.join(command, " "));
+        new FlexCompilerProcessHandler(context, messageHandler, process, asc20, compilerName, StringUtil.join(command, " "));
       processHandler.startNotify();
       processHandler.waitFor();
 
@@ -390,21 +469,22 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                                             : Status.Ok;
     }
     catch (IOException e) {
-      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
+      messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.getMessage()));
       return Status.Failed;
     }
   }
 
   private static Status doCompileWithBuiltInCompiler(final CompileContext context,
+                                                     final MessageHandler messageHandler,
                                                      final JpsFlexBuildConfiguration bc,
                                                      final List<File> configFiles,
                                                      final String compilerName,
                                                      final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
     try {
-      builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), context, compilerName);
+      builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), messageHandler, compilerName);
     }
     catch (IOException e) {
-      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
+      messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
       return Status.Failed;
     }
 
@@ -416,9 +496,9 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     final Semaphore semaphore = new Semaphore();
     semaphore.down();
 
-    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, plainCommand));
+    messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, plainCommand));
 
-    final BuiltInCompilerListener listener = new BuiltInCompilerListener(context, compilerName, () -> semaphore.up());
+    final BuiltInCompilerListener listener = new BuiltInCompilerListener(context, messageHandler, compilerName, () -> semaphore.up());
 
     builtInCompilerHandler.sendCompilationCommand(plainCommand, listener);
 
@@ -485,11 +565,101 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     }
   }
 
+  /**
+   * Compiles build configurations in pooled threads, at most {@code parallelism} at a time, starting them in the order of the list.
+   * Messages of each compilation except progress ones are buffered and passed to the build context by {@link #waitFor(int)},
+   * so that the build log looks the same as if the build configurations were compiled one by one.
+   */
+  private static class ParallelCompilation {
+    private final CompileContext myContext;
+    private final List<JpsFlexBuildConfiguration> myBCs;
+    private final JpsBuiltInFlexCompilerPool myBuiltInCompilerPool;
+
+    private final List<CompletableFuture<Status>> myResults;
+    private final List<List<BuildMessage>> myMessages;
+    private final AtomicInteger myNextIndex = new AtomicInteger();
+    private final CountDownLatch myWorkersFinished;
+    private volatile boolean myStopped;
+
+    ParallelCompilation(final CompileContext context,
+                        final List<JpsFlexBuildConfiguration> bcs,
+                        final JpsBuiltInFlexCompilerPool builtInCompilerPool,
+                        final int parallelism) {
+      myContext = context;
+      myBCs = bcs;
+      myBuiltInCompilerPool = builtInCompilerPool;
+
+      myResults = new ArrayList<>(bcs.size());
+      myMessages = new ArrayList<>(bcs.size());
+      for (int i = 0; i < bcs.size(); i++) {
+        myResults.add(new CompletableFuture<>());
+        myMessages.add(Collections.synchronizedList(new ArrayList<>()));
+      }
+
+      myWorkersFinished = new CountDownLatch(parallelism);
+      for (int i = 0; i < parallelism; i++) {
+        SharedThreadPool.getInstance().executeOnPooledThread(this::compileRemaining);
+      }
+    }
+
+    private void compileRemaining() {
+      try {
+        int index;
+        while (!myStopped && (index = myNextIndex.getAndIncrement()) < myBCs.size()) {
+          final List<BuildMessage> messages = myMessages.get(index);
+          try {
+            myResults.get(index).complete(compileBuildConfiguration(myContext, messages::add, myBCs.get(index), myBuiltInCompilerPool));
+          }
+          catch (Throwable t) {
+            myResults.get(index).completeExceptionally(t);
+          }
+        }
+      }
+      finally {
+        myWorkersFinished.countDown();
+      }
+    }
+
+    Status waitFor(final int index) throws ProjectBuildException {
+      final Status status;
+      try {
+        status = myResults.get(index).get();
+      }
+      catch (InterruptedException e) {
+        throw new ProjectBuildException(e);
+      }
+      catch (ExecutionException e) {
+        throw new ProjectBuildException(e.getCause());
+      }
+
+      for (BuildMessage message : myMessages.get(index)) {
+        myContext.processMessage(message);
+      }
+      return status;
+    }
+
+    /**
+     * Doesn't start new compilations and waits for the running ones, messages of compilations that have not been waited for are dropped.
+     */
+    void stop() {
+      myStopped = true;
+      try {
+        myWorkersFinished.await();
+      }
+      catch (InterruptedException e) {
+        LOG.warn(e);
+      }
+    }
+  }
+
   private static class BuiltInCompilerListener extends CompilerMessageHandlerBase implements JpsBuiltInFlexCompilerHandler.Listener {
     private final Runnable myOnCompilationFinishedRunnable;
 
-    BuiltInCompilerListener(final CompileContext context, final String compilerName, final Runnable onCompilationFinishedRunnable) {
-      super(context, false, compilerName);
+    BuiltInCompilerListener(final CompileContext context,
+                            final MessageHandler messageHandler,
+                            final String compilerName,
+                            final Runnable onCompilationFinishedRunnable) {
+      super(context, messageHandler, false, compilerName);
       myOnCompilationFinishedRunnable = onCompilationFinishedRunnable;
     }
 
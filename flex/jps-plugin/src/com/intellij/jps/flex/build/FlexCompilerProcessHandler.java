@@ -7,6 +7,7 @@ import com.intellij.flex.FlexCommonUtils;
 import com.intellij.openapi.util.Key;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.MessageHandler;
 
 import java.nio.charset.Charset;
 
@@ -18,9 +19,18 @@ public class FlexCompilerProcessHandler extends BaseOSProcessHandler {
                                     final boolean asc20,
                                     final String compilerName,
                                     @NotNull String commandLine) {
+    this(context, context, process, asc20, compilerName, commandLine);
+  }
+
+  public FlexCompilerProcessHandler(final CompileContext context,
+                                    final MessageHandler messageHandler,
+                                    final Process process,
+                                    final boolean asc20,
+                                    final String compilerName,
+                                    @NotNull String commandLine) {
     super(process, commandLine, Charset.forName(FlexCommonUtils.SDK_TOOLS_ENCODING));
 
-    myListener = new MyProcessListener(context, asc20, compilerName);
+    myListener = new MyProcessListener(context, messageHandler, asc20, compilerName);
     addProcessListener(myListener);
   }
 
@@ -34,8 +44,8 @@ public class FlexCompilerProcessHandler extends BaseOSProcessHandler {
 
   private class MyProcessListener extends CompilerMessageHandlerBase implements ProcessListener {
 
-    MyProcessListener(final CompileContext context, final boolean asc20, final String compilerName) {
-      super(context, asc20, compilerName);
+    MyProcessListener(final CompileContext context, final MessageHandler messageHandler, final boolean asc20, final String compilerName) {
+      super(context, messageHandler, asc20, compilerName);
     }
 
     @Override
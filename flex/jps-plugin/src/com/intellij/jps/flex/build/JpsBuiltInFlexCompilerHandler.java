@@ -7,7 +7,7 @@ import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import gnu.trove.THashMap;
-import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.model.JpsProject;
@@ -47,12 +47,8 @@ public class JpsBuiltInFlexCompilerHandler {
     myProject = project;
   }
 
-  public synchronized boolean canBeUsedForSdk(final String sdkHome) {
-    return mySdkHome == null || mySdkHome.equals(sdkHome);
-  }
-
   public synchronized void startCompilerIfNeeded(final JpsSdk<?> sdk,
-                                                 final CompileContext context,
+                                                 final MessageHandler messageHandler,
                                                  final String compilerName) throws IOException {
     if (!Comparing.equal(sdk.getHomePath(), mySdkHome)) {
       stopCompilerProcess();
@@ -60,12 +56,12 @@ public class JpsBuiltInFlexCompilerHandler {
 
     if (myServerSocket == null) {
       try {
-        //context.processMessage(new ProgressMessage("Starting Flex compiler"));
+        //messageHandler.processMessage(new ProgressMessage("Starting Flex compiler"));
         myServerSocket = new ServerSocket(0);
         myServerSocket.setSoTimeout(10000);
         final int port = myServerSocket.getLocalPort();
 
-        startCompilerProcess(sdk, port, context, compilerName);
+        startCompilerProcess(sdk, port, messageHandler, compilerName);
 
         final Socket socket = myServerSocket.accept();
         myDataInputStream = new DataInputStream(socket.getInputStream());
@@ -82,7 +78,7 @@ public class JpsBuiltInFlexCompilerHandler {
 
   private void startCompilerProcess(final JpsSdk<?> sdk,
                                     final int port,
-                                    final CompileContext context,
+                                    final MessageHandler messageHandler,
                                     final String compilerName) throws IOException {
     final StringBuilder classpath = new StringBuilder();
 
@@ -103,13 +99,13 @@ public class JpsBuiltInFlexCompilerHandler {
     processBuilder.directory(new File(FlexCommonUtils.getFlexCompilerWorkDirPath(myProject)));
 
     final String plainCommand = StringUtil.join(processBuilder.command(), s -> s.contains(" ") ? "\"" + s + "\"" : s, " ");
-    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
+    messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
 
     final Process process = processBuilder.start();
-    readInputStreamUntilConnected(process, context, compilerName);
+    readInputStreamUntilConnected(process, messageHandler, compilerName);
   }
 
-  private void readInputStreamUntilConnected(final Process process, final CompileContext context, final String compilerName) {
+  private void readInputStreamUntilConnected(final Process process, final MessageHandler messageHandler, final String compilerName) {
     SharedThreadPool.getInstance().execute(() -> {
       final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
 
@@ -123,13 +119,13 @@ public class JpsBuiltInFlexCompilerHandler {
           }
           else {
             closeSocket();
-            context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
+            messageHandler.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
           }
         }
       }
       catch (IOException e) {
         closeSocket();
-        context.processMessage(
+        messageHandler.processMessage(
           new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, "Failed to start Flex compiler: " + e.toString()));
       }
       finally {
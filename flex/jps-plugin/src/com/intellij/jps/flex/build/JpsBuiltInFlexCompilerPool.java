@@ -0,0 +1,104 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.model.JpsProject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Built-in compiler processes of a build, one per Flex SDK. Each process runs any number of compilations at once,
+ * commands and their output are told apart by command numbers.
+ * <p>
+ * Every process takes up to {@link JpsFlexCompilerProjectExtension#HEAP_SIZE_MB}, so the number of processes is limited by
+ * {@link JpsFlexCompilerProjectExtension#MAX_PARALLEL_COMPILATIONS}. When the limit is reached the least recently used idle process
+ * is stopped to start a process for another SDK; if all processes are busy, {@link #acquire(String)} returns {@code null}
+ * and the caller compiles with a separate compiler process instead.
+ */
+public class JpsBuiltInFlexCompilerPool {
+
+  private final JpsProject myProject;
+
+  // access order, so that the first idle entry is the least recently used one
+  private final Map<String, Entry> myEntries = new LinkedHashMap<>(4, 0.75f, true);
+
+  private static class Entry {
+    private final JpsBuiltInFlexCompilerHandler handler;
+    private int users;
+
+    private Entry(final JpsBuiltInFlexCompilerHandler handler) {
+      this.handler = handler;
+    }
+
+    private boolean isIdle() {
+      return users == 0 && handler.getActiveCompilationsNumber() == 0;
+    }
+  }
+
+  JpsBuiltInFlexCompilerPool(final JpsProject project) {
+    myProject = project;
+  }
+
+  /**
+   * Each successful call must be paired with {@link #release(JpsBuiltInFlexCompilerHandler)}, the handler is not stopped in between.
+   */
+  @Nullable
+  public synchronized JpsBuiltInFlexCompilerHandler acquire(@NotNull final String sdkHome) {
+    Entry entry = myEntries.get(sdkHome);
+    if (entry == null) {
+      if (myEntries.size() >= getMaxProcesses() && !stopLeastRecentlyUsedIdleProcess()) {
+        return null;
+      }
+
+      entry = new Entry(new JpsBuiltInFlexCompilerHandler(myProject));
+      myEntries.put(sdkHome, entry);
+    }
+
+    entry.users++;
+    return entry.handler;
+  }
+
+  public synchronized void release(@NotNull final JpsBuiltInFlexCompilerHandler handler) {
+    for (Entry entry : myEntries.values()) {
+      if (entry.handler == handler) {
+        entry.users--;
+        return;
+      }
+    }
+  }
+
+  private boolean stopLeastRecentlyUsedIdleProcess() {
+    final Iterator<Entry> iterator = myEntries.values().iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.isIdle()) {
+        iterator.remove();
+        entry.handler.stopCompilerProcess();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int getMaxProcesses() {
+    return Math.max(1, JpsFlexCompilerProjectExtension.getInstance(myProject).MAX_PARALLEL_COMPILATIONS);
+  }
+
+  public synchronized int getActiveCompilationsNumber() {
+    int result = 0;
+    for (Entry entry : myEntries.values()) {
+      result += entry.handler.getActiveCompilationsNumber();
+    }
+    return result;
+  }
+
+  public synchronized void stopCompilerProcesses() {
+    for (Entry entry : myEntries.values()) {
+      entry.handler.stopCompilerProcess();
+    }
+    myEntries.clear();
+  }
+}
@@ -80,6 +80,7 @@ public class CodeContext {
   public final String namespace;
   public final Module module;
   private final Set<Object> dependencies = new THashSet<>();
+  private Boolean myFlex4Sdk; // SDK of the active BC, checked once instead of per descriptor
 
   CodeContext(String _namespace, Module _module) {
     myNameToDescriptorsMap = new THashMap<>(100);
@@ -117,7 +118,7 @@ public class CodeContext {
       typeDescriptor.setRequired(true);
       descriptor.addPredefinedMemberDescriptor(typeDescriptor);
     }
-    else if (addGumboAttributesIfNeeded && FlexSdkUtils.isFlex4Sdk(FlexUtils.getSdkForActiveBC(module))) {
+    else if (addGumboAttributesIfNeeded && isFlex4Sdk()) {
       // The most correct way is not to check sdk but to check language level of current mxml file. But it is impossible because CodeContext is not per file.
       for (String gumboAttr : GUMBO_ATTRIBUTES) {
         descriptor.addPredefinedMemberDescriptor(new AnnotationBackedDescriptorImpl(gumboAttr, descriptor, true, null, null, null));
@@ -126,6 +127,13 @@ public class CodeContext {
     myNameToDescriptorsMap.put(name, descriptor);
   }
 
+  private boolean isFlex4Sdk() {
+    if (myFlex4Sdk == null) {
+      myFlex4Sdk = FlexSdkUtils.isFlex4Sdk(FlexUtils.getSdkForActiveBC(module));
+    }
+    return myFlex4Sdk;
+  }
+
   private void addDependency(final @NotNull Object dep) {
     dependencies.add(dep);
   }
@@ -154,6 +162,10 @@ public class CodeContext {
       codeContext = contextHolder.getCodeContext(namespace, module);
 
       if (codeContext == null) {
+        if (!isPackageBackedNamespace(namespace) && contextHolder.areLibraryComponentsHandledForModule(module)) {
+          // all namespaces of libraries have been collected at once, this one is not provided by any of them
+          return CodeContextHolder.EMPTY;
+        }
         codeContext = createCodeContext(namespace, module, bc);
         if (codeContext.getAllDescriptorsSize() > 0) {
           // avoid adding of incorrect namespaces that appear during completion like "http://www.adobe.IntellijIdeaRulezzz com/2006/mxml"
@@ -230,11 +242,19 @@ public class CodeContext {
   private static CodeContext createCodeContextFromLibraries(final String namespace,
                                                             final Module module,
                                                             final FlexBuildConfiguration bc) {
+    final Map<String, CodeContext> contextsOfModule = handleLibraries(module, bc);
+    final CodeContext codeContext = contextsOfModule.get(namespace);
+    return codeContext != null ? codeContext : CodeContextHolder.EMPTY;
+  }
+
+  /**
+   * Collects contexts of all namespaces provided by dependencies of the BC in one pass and remembers that it is done for the module,
+   * so namespaces that no library provides don't cause another pass.
+   */
+  private static Map<String, CodeContext> handleLibraries(final Module module, final FlexBuildConfiguration bc) {
     final Map<String, CodeContext> contextsOfModule = new THashMap<>();
     final ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
 
-    // TODO: this code should not be invoked per ns!
-    // If fixed - then method usage at getStdCodeContext() must be changed to make sure that all namespaces handled at that point.
     for (DependencyEntry entry : bc.getDependencies().getEntries()) {
       if (entry.getDependencyType().getLinkageType() == LinkageType.LoadInRuntime) continue;
 
@@ -268,12 +288,9 @@ public class CodeContext {
     for (Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
       contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
     }
+    contextHolder.setLibraryComponentsHandledForModule(module);
 
-    CodeContext codeContext = contextsOfModule.get(namespace);
-    if (codeContext == null) {
-      codeContext = CodeContextHolder.EMPTY;
-    }
-    return codeContext;
+    return contextsOfModule;
   }
 
   private static void addComponentsFromManifests(final Module module, final Map<String, CodeContext> contextsOfModule,
@@ -392,7 +409,9 @@ public class CodeContext {
     if (!contextHolder.areSdkComponentsHandledForModule(module)) { // handleAllStandardManifests only once per module
       handleAllStandardManifests(module, bc);
       handleSwcFromSdk(module, bc); //swc files attached to Flex SDK may contribute to standard context
-      createCodeContextFromLibraries(namespace, module, bc); // other libraries may contribute to standard context
+      if (!contextHolder.areLibraryComponentsHandledForModule(module)) {
+        handleLibraries(module, bc); // other libraries may contribute to standard context
+      }
       contextHolder.setSdkComponentsHandledForModule(module);
     }
 
@@ -14,6 +14,7 @@ import java.util.*;
 
 public class CodeContextHolder {
   private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<>();
+  private final Set<Module> myModulesWithLibraryComponentsHandled = new HashSet<>();
   private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<>();
   private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<>();
   static final CodeContext EMPTY = new CodeContext(null, null);
@@ -26,6 +27,7 @@ public class CodeContextHolder {
           myNSToCodeContextMap.clear();
           myStandardContexts.clear();
           myModulesWithSdkComponentsHandled.clear();
+          myModulesWithLibraryComponentsHandled.clear();
         }
       }
     });
@@ -52,6 +54,10 @@ public class CodeContextHolder {
     if (map != null) {
       map.remove(module);
     }
+    if (!CodeContext.isPackageBackedNamespace(namespace)) {
+      // contexts of library namespaces are created all together, so all of them will be collected again
+      myModulesWithLibraryComponentsHandled.remove(module);
+    }
   }
 
   public static CodeContextHolder getInstance(@NotNull Project project) {
@@ -95,4 +101,12 @@ public class CodeContextHolder {
   synchronized boolean setSdkComponentsHandledForModule(final Module module) {
     return myModulesWithSdkComponentsHandled.add(module);
   }
+
+  synchronized boolean areLibraryComponentsHandledForModule(final Module module) {
+    return myModulesWithLibraryComponentsHandled.contains(module);
+  }
+
+  synchronized void setLibraryComponentsHandledForModule(final Module module) {
+    myModulesWithLibraryComponentsHandled.add(module);
+  }
 }
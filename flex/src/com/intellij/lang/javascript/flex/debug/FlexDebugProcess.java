@@ -132,6 +132,10 @@ public class FlexDebugProcess extends XDebugProcess {
   private Object myStackFrameEqualityObject;
   private Map<String, String> myQName2IdMap;
 
+  // fdb responses to read-only evaluations, valid until the player runs or something is assigned
+  private final Map<String, String> myEvaluationCache = Collections.synchronizedMap(new HashMap<>());
+  @NonNls private static final String[] READ_ONLY_COMMAND_PREFIXES = {"print ", "frame", "info ", "bt", "show "};
+
   private int myCurrentWorker = 0;
   private final KnownFilesInfo myKnownFilesInfo = new KnownFilesInfo(this);
 
@@ -996,6 +1000,12 @@ public class FlexDebugProcess extends XDebugProcess {
   void doSendCommandText(final DebuggerCommand command) throws IOException {
     final String text = command.getText();
 
+    if (command.getOutputProcessingMode() == CommandOutputProcessingType.NO_PROCESSING ||
+        command.getEndVMState() == VMState.RUNNING ||
+        !isReadOnlyCommandText(text)) {
+      myEvaluationCache.clear();
+    }
+
     setSuspended(
       command.getOutputProcessingMode() == CommandOutputProcessingType.NO_PROCESSING && command.getEndVMState() == VMState.SUSPENDED);
     log("Sent:" + text);
@@ -1159,6 +1169,12 @@ public class FlexDebugProcess extends XDebugProcess {
     commandsToWrite.addLast(command);
   }
 
+  boolean hasCommandsToWrite() {
+    synchronized (commandsToWrite) {
+      return !commandsToWrite.isEmpty();
+    }
+  }
+
   @Override
   public void resume(@Nullable XSuspendContext context) {
     sendCommand(new ContinueCommand());
@@ -1210,6 +1226,29 @@ public class FlexDebugProcess extends XDebugProcess {
     return false;
   }
 
+  private static boolean isReadOnlyCommandText(final String text) {
+    for (String line : StringUtil.splitByLines(text)) {
+      boolean readOnly = false;
+      for (String prefix : READ_ONLY_COMMAND_PREFIXES) {
+        if (line.startsWith(prefix)) {
+          readOnly = true;
+          break;
+        }
+      }
+      if (!readOnly) return false;
+    }
+    return true;
+  }
+
+  @Nullable
+  String getCachedEvaluationResult(final String expression) {
+    return myEvaluationCache.get(expression);
+  }
+
+  void cacheEvaluationResult(final String expression, final String result) {
+    myEvaluationCache.put(expression, result);
+  }
+
   void setQName2Id(Map<String, String> qName2IdMap, Object equalityObject) {
     myStackFrameEqualityObject = equalityObject;
     myQName2IdMap = qName2IdMap;
@@ -15,6 +15,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.NullableComputable;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.source.tree.injected.InjectedLanguageUtil;
@@ -35,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author nik
@@ -53,9 +55,12 @@ public class FlexStackFrame extends XStackFrame {
   private final XDebuggerEvaluator myXDebuggerEvaluator = new FlexDebuggerEvaluator();
   private String myScope = UNKNOWN_SCOPE;
   private int myFrameIndex;
+  private volatile Collection<String> myMembersExpressions = Collections.emptyList();
+  private final AtomicBoolean myMembersPrefetched = new AtomicBoolean();
   @NonNls protected static final String UNKNOWN_SCOPE = "<unknown>";
   static final String CLASS_MARKER = ", class='";
   static final String CANNOT_EVALUATE_EXPRESSION = "Cannot evaluate expression: ";
+  private static final int MAX_PREFETCHED_OBJECTS = 30;
 
   FlexStackFrame(final FlexDebugProcess debugProcess, final @Nullable XSourcePosition sourcePosition) {
     myDebugProcess = debugProcess;
@@ -83,9 +88,10 @@ public class FlexStackFrame extends XStackFrame {
   @Override
   public void computeChildren(@NotNull final XCompositeNode node) {
     List<DebuggerCommand> commands = new ArrayList<>();
-    commands.add(new MyDebuggerCommand("print this", node, true, FlexValue.ValueType.This));
-    commands.add(new MyDebuggerCommand("info arguments", node, false, FlexValue.ValueType.Parameter));
-    commands.add(new MyDebuggerCommand("info locals", node, false, FlexValue.ValueType.Variable));
+    final Set<String> membersExpressions = new LinkedHashSet<>();
+    commands.add(new MyDebuggerCommand("print this", node, true, FlexValue.ValueType.This, membersExpressions));
+    commands.add(new MyDebuggerCommand("info arguments", node, false, FlexValue.ValueType.Parameter, membersExpressions));
+    commands.add(new MyDebuggerCommand("info locals", node, false, FlexValue.ValueType.Variable, membersExpressions));
     //commands.add(new MyDebuggerCommand("info variables", node, false));
 
     if (mySourcePosition != null) {
@@ -176,11 +182,33 @@ public class FlexStackFrame extends XStackFrame {
         protected void succeeded() {
           super.succeeded();
           node.addChildren(XValueChildrenList.EMPTY, true);
+          myMembersExpressions = membersExpressions;
         }
       }
     );
   }
 
+  /**
+   * Lists members of the objects shown in the frame in one exchange with fdb, so that expanding them takes the cached responses
+   * instead of sending a command per object. Called when the first object of the frame has been expanded, so nothing is prefetched
+   * for frames whose variables are not looked at. Skipped if another command, e.g. a step, is already waiting to be sent.
+   */
+  void prefetchMembers() {
+    if (myMembersPrefetched.get() || myDebugProcess.hasCommandsToWrite()) return;
+
+    final List<String> expressions = new ArrayList<>();
+    for (String expression : myMembersExpressions) {
+      if (myDebugProcess.getCachedEvaluationResult(expression) == null) {
+        expressions.add(expression);
+        if (expressions.size() == MAX_PREFETCHED_OBJECTS) break;
+      }
+    }
+
+    if (!expressions.isEmpty() && myMembersPrefetched.compareAndSet(false, true)) {
+      myDebugProcess.sendCommand(new PrefetchMembersCommand(expressions));
+    }
+  }
+
   private String addFrameOffset(String text) {
     text="frame " + (myFrameIndex != 0 ? myFrameIndex: "")+ "\n"+text;
     return text;
@@ -498,19 +526,42 @@ public class FlexStackFrame extends XStackFrame {
     return myQualifiedFunctionName;
   }
 
+  private class PrefetchMembersCommand extends DebuggerCommand {
+    private final List<String> myExpressions;
+    private int myResponseCount;
+
+    PrefetchMembersCommand(final List<String> expressions) {
+      super(StringUtil.join(expressions, expression -> "print " + expression, "\n"), CommandOutputProcessingType.SPECIAL_PROCESSING);
+      myExpressions = expressions;
+    }
+
+    @Override
+    CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+      if (myDebugProcess.filterStdResponse(s)) return CommandOutputProcessingMode.PROCEEDING;
+
+      // one response per print command, in the order of commands
+      myDebugProcess.cacheEvaluationResult(myExpressions.get(myResponseCount), s);
+      ++myResponseCount;
+      return myResponseCount == myExpressions.size() ? CommandOutputProcessingMode.DONE : CommandOutputProcessingMode.PROCEEDING;
+    }
+  }
+
   private class MyDebuggerCommand extends DebuggerCommand {
     private final boolean hasFrame;
     private final XValueChildrenList resultChildren;
     private int current;
     private final XCompositeNode myNode;
     private final FlexValue.ValueType myValueType;
+    private final Collection<String> myMembersExpressions;
 
-    MyDebuggerCommand(String text, XCompositeNode node, boolean _hasFrame, FlexValue.ValueType valueType) {
+    MyDebuggerCommand(String text, XCompositeNode node, boolean _hasFrame, FlexValue.ValueType valueType,
+                      Collection<String> membersExpressions) {
       super(_hasFrame ? addFrameOffset(text):text, CommandOutputProcessingType.SPECIAL_PROCESSING);
       myNode = node;
       resultChildren = new XValueChildrenList(3);
       hasFrame = _hasFrame;
       myValueType = valueType;
+      myMembersExpressions = membersExpressions;
     }
 
     @Override
@@ -558,8 +609,7 @@ public class FlexStackFrame extends XStackFrame {
 
           if (previousNameAndValue != null) {
             String prevName = previousNameAndValue.first;
-            resultChildren.add(prevName, new FlexValue(FlexStackFrame.this, myDebugProcess, mySourcePosition, prevName, prevName,
-                                                       removeTrailingNewLines(previousNameAndValue.second), null, myValueType));
+            addValue(prevName, removeTrailingNewLines(previousNameAndValue.second));
           }
 
           previousNameAndValue = Pair.create(name, new StringBuilder(token.substring(i + DELIM.length())));
@@ -567,8 +617,7 @@ public class FlexStackFrame extends XStackFrame {
 
         if (previousNameAndValue != null) {
           String prevName = previousNameAndValue.first;
-          resultChildren.add(prevName, new FlexValue(FlexStackFrame.this, myDebugProcess, mySourcePosition, prevName, prevName,
-                                                     removeTrailingNewLines(previousNameAndValue.second), null, myValueType));
+          addValue(prevName, removeTrailingNewLines(previousNameAndValue.second));
         }
       }
 
@@ -582,6 +631,16 @@ public class FlexStackFrame extends XStackFrame {
       }
     }
 
+    private void addValue(final String name, final String result) {
+      final FlexValue value = new FlexValue(FlexStackFrame.this, myDebugProcess, mySourcePosition, name, name, result, null, myValueType);
+      resultChildren.add(name, value);
+
+      final String membersExpression = value.getMembersExpression();
+      if (membersExpression != null) {
+        myMembersExpressions.add(membersExpression);
+      }
+    }
+
     private String removeTrailingNewLines(final StringBuilder builder) {
       while (builder.length() > 0 && ((builder.charAt(builder.length() - 1) == '\r') || builder.charAt(builder.length() - 1) == '\n')) {
         builder.deleteCharAt(builder.length() - 1);
@@ -120,6 +120,11 @@ class AS3InterfaceDumper extends AbstractDumpProcessor {
     return !md.name.contains("__");
   }
 
+  @Override
+  public boolean doDumpMethodBodies() {
+    return false;
+  }
+
   @Override
   public void processParameter(@NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest) {
     if (rest) {
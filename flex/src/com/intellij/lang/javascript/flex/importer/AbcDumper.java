@@ -77,6 +77,11 @@ class AbcDumper extends AbstractDumpProcessor {
     return true;
   }
 
+  @Override
+  public boolean doDumpMethodBodies() {
+    return true;
+  }
+
   @Override
   public void processParameter(@NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest) {
     processMultinameAsPackageName(type, parentName);
@@ -2,23 +2,64 @@ package com.intellij.lang.javascript.flex.importer;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
+ * Little or big endian reader over a range of a byte array. Slices share the array with the buffer they are taken from,
+ * so nested ABC blocks and method bodies are never copied.
+ *
  * @author Maxim.Mossienko
 */
 class ByteBuffer {
+  private static final int MAX_COMPRESSION_RATIO = 1000;
+
   private byte[] bytes;
+  private int offset;
+  private int limit;
   private int position;
   private boolean littleEndian;
 
+  ByteBuffer() {
+  }
+
+  private ByteBuffer(@NotNull byte[] bytes, int offset, int limit) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.limit = limit;
+  }
+
+  @NotNull
+  static ByteBuffer wrap(@NotNull byte[] bytes) {
+    return new ByteBuffer(bytes, 0, bytes.length);
+  }
+
   void read(@NotNull InputStream inputStream) throws IOException {
     try {
-      bytes = readStream(inputStream);
+      final byte[] buf = new byte[8192];
+      byte[] result = new byte[Math.max(8192, inputStream.available())];
+      int total = 0;
+
+      while (true) {
+        int read = inputStream.read(buf);
+        if (read == -1) break;
+        if (total + read > result.length) {
+          byte[] newresult = new byte[Math.max(result.length * 2, total + read)];
+          System.arraycopy(result, 0, newresult, 0, total);
+          result = newresult;
+        }
+
+        System.arraycopy(buf, 0, result, total, read);
+        total += read;
+      }
+
+      bytes = result;
+      offset = 0;
+      limit = total;
+      position = 0;
     }
     finally {
       inputStream.close();
@@ -30,12 +71,13 @@ class ByteBuffer {
   }
 
   int readInt() {
+    final int p = offset + position;
     int result;
     if (littleEndian) {
-      result = (((bytes[position + 3] & 0xFF) << 8 | (bytes[position + 2] & 0xFF)) << 16) + ((bytes[position + 1] & 0xFF) << 8) | (bytes[position] & 0xFF);
+      result = (((bytes[p + 3] & 0xFF) << 8 | (bytes[p + 2] & 0xFF)) << 16) + ((bytes[p + 1] & 0xFF) << 8) | (bytes[p] & 0xFF);
     }
     else {
-      result = (((bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF)) << 16) + ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+      result = (((bytes[p] & 0xFF) << 8 | (bytes[p + 1] & 0xFF)) << 16) + ((bytes[p + 2] & 0xFF) << 8) | (bytes[p + 3] & 0xFF);
     }
     position += 4;
     return result;
@@ -50,77 +92,108 @@ class ByteBuffer {
   }
 
   public int bytesSize() {
-    return bytes.length;
+    return limit - offset;
   }
 
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
-
-    bytes = readStream(zipInputStream);
-
-    zipInputStream.close();
-  }
-
-  private static byte[] readStream(final InputStream zipInputStream) throws IOException {
-    final byte[] buf = new byte[8192];
-    byte[] result = new byte[8192];
-    int total = 0;
-
-    while (true) {
-      int read = zipInputStream.read(buf);
-      if (read == -1) break;
-      if (total + read >= result.length) {
-        byte[] newresult = new byte[result.length * 2];
-        System.arraycopy(result, 0, newresult, 0, total);
-        result = newresult;
+  /**
+   * Inflates the zlib compressed data that starts at the given position up to the end of this buffer.
+   *
+   * @param expectedSize size of the uncompressed data if known, e.g. from the SWF header, or 0
+   */
+  @NotNull
+  ByteBuffer inflate(final int from, final int expectedSize) throws IOException {
+    final Inflater inflater = new Inflater();
+    try {
+      final int compressedSize = limit - offset - from;
+      inflater.setInput(bytes, offset + from, compressedSize);
+      // don't trust a size from a broken header too much
+      final boolean sizeKnown = expectedSize > 0 && expectedSize / MAX_COMPRESSION_RATIO <= compressedSize;
+      byte[] result = new byte[sizeKnown ? expectedSize : Math.max(8192, compressedSize * 2)];
+      int total = 0;
+      while (!inflater.finished()) {
+        if (total == result.length) {
+          byte[] newresult = new byte[result.length * 2];
+          System.arraycopy(result, 0, newresult, 0, total);
+          result = newresult;
+        }
+        int inflated = inflater.inflate(result, total, result.length - total);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        total += inflated;
       }
-
-      System.arraycopy(buf, 0, result, total, read);
-      total += read;
+      final ByteBuffer buffer = new ByteBuffer(result, 0, total);
+      buffer.littleEndian = littleEndian;
+      return buffer;
+    }
+    catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    finally {
+      inflater.end();
     }
-
-    final byte[] realResult = new byte[total];
-    System.arraycopy(result, 0, realResult, 0, total);
-    return realResult;
   }
 
   public int readUnsignedByte() {
-    return bytes[position++] & 0xFF;
+    return bytes[offset + position++] & 0xFF;
   }
 
   public int readByte() {
-    return bytes[position++];
+    return bytes[offset + position++];
   }
 
   public int readUnsignedShort() {
+    final int p = offset + position;
     int result;
     if (littleEndian) {
-      result = (bytes[position + 1] & 0xFF) << 8 | (bytes[position] & 0xFF);
+      result = (bytes[p + 1] & 0xFF) << 8 | (bytes[p] & 0xFF);
     }
     else {
-      result = (bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF);
+      result = (bytes[p] & 0xFF) << 8 | (bytes[p + 1] & 0xFF);
     }
     position += 2;
     return result;
   }
 
-  public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+  /**
+   * @return buffer over the next {@code length} bytes, which shares the data with this buffer
+   */
+  @NotNull
+  public ByteBuffer slice(int length) {
+    final int start = offset + position;
+    if (length < 0 || start + length > limit) {
+      throw new ArrayIndexOutOfBoundsException(start + length);
+    }
+    final ByteBuffer result = new ByteBuffer(bytes, start, start + length);
+    result.littleEndian = littleEndian;
     position += length;
+    return result;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= bytesSize();
   }
 
   public String readUTFBytes(int i) {
-    final byte[] buf = new byte[i];
-    while (i > 0) {
-      buf[buf.length - i] = (byte)readByte();
-      --i;
+    final String result = getUTFBytes(position, i);
+    position += i;
+    return result;
+  }
+
+  public String getUTFBytes(int start, int length) {
+    if (start + length > bytesSize()) {
+      throw new ArrayIndexOutOfBoundsException(start + length);
     }
-    return new String(buf, StandardCharsets.UTF_8);
+    return new String(bytes, offset + start, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a zero terminated UTF-8 string.
+   */
+  public String readString() {
+    final int start = position;
+    while (readUnsignedByte() != 0) ;
+    return getUTFBytes(start, position - start - 1);
   }
 
   public double readDouble() {
@@ -142,7 +215,7 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes[offset + i];
   }
 
   public int getPosition() {
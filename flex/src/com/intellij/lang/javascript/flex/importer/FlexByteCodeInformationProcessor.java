@@ -25,6 +25,11 @@ interface FlexByteCodeInformationProcessor {
   
   boolean doDumpMetaData(final @NotNull MetaData md);
 
+  /**
+   * Method bodies are not needed to build the interface of a library and are not parsed unless this returns true.
+   */
+  boolean doDumpMethodBodies();
+
   String REST_PARAMETER_TYPE = "...";
   void processParameter(final @NotNull String name, @Nullable Multiname type, String parentName, @Nullable Multiname value, boolean rest);
 
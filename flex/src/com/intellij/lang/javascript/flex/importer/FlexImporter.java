@@ -70,11 +70,23 @@ public class FlexImporter {
     processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
   }
 
+  /**
+   * Same as {@link #buildStubsInterfaceFromStream} but reads the content in place, without copying it.
+   */
+  public static void buildStubsInterfaceFromBytes(@NotNull final byte[] content, final StubElement parent) throws IOException {
+    processFlexByteCode(ByteBuffer.wrap(content), new AS3InterfaceStubDumper(parent));
+  }
+
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     ByteBuffer data = new ByteBuffer();
     data.read(in);
+    processFlexByteCode(data, processor);
+  }
+
+  private static void processFlexByteCode(@NotNull final ByteBuffer data, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     data.setLittleEndian();
     if (data.bytesSize() == 0) return;
+    data.setPosition(0);
     int version = data.readUnsignedInt();
 
     if (version == ABC_VER || version == ABC_VER2 || version == ABC_VER3) {
@@ -83,12 +95,10 @@ public class FlexImporter {
     }
     else if ((version & SWF_MAGIC) == SWF_MAGIC) {
       final int delta = 8;
-      data.setPosition(delta);
-      ByteBuffer udata = new ByteBuffer();
-      udata.setLittleEndian();
-      data.readBytes(udata, data.bytesSize() - delta);
-      int csize = udata.bytesSize();
-      udata.uncompress();
+      // the header contains the length of the whole uncompressed file, the uncompressed part is inflated at once
+      final int length = data.readUnsignedInt();
+      final int csize = data.bytesSize() - delta;
+      ByteBuffer udata = data.inflate(delta, length > delta ? length - delta : 0);
       processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
       udata.setPosition(0);
       new Swf(udata, processor);
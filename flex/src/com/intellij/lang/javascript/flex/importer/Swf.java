@@ -178,15 +178,12 @@ class Swf {
         case stagDoABC2:
           int pos1 = data.getPosition();
           data.readInt();
-          final String abcName = readString();
+          final String abcName = data.readString();
           processor.dumpStat("\nabc name " + abcName + "\n");
           length -= (data.getPosition() - pos1);
           // fall through
         case stagDoABC:
-          ByteBuffer data2 = new ByteBuffer();
-          data2.setLittleEndian();
-          data.readBytes(data2, length);
-          new Abc(data2, processor).dump(processor.getAbcInSwfIndent());
+          new Abc(data.slice(length), processor).dump(processor.getAbcInSwfIndent());
           processor.append("\n");
           break;
         default:
@@ -195,15 +192,6 @@ class Swf {
     }
   }
 
-  private String readString() {
-    String s = "";
-    int c;
-
-    while ((c = data.readUnsignedByte()) != 0) s += (char)c;
-
-    return s;
-  }
-
   private void syncBits() {
     bitPos = 0;
   }
@@ -40,6 +40,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Trinity;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
@@ -139,6 +140,14 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   private final Collection<DiagramEdge<Object>> myEdgesOld = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myDependencyEdgesOld = new HashSet<>();
 
+  // source, target and relationship of edges in myEdges and myDependencyEdges, to check for duplicates without scanning all edges
+  private final Set<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>> myEdgeKeys = new HashSet<>();
+  private final Set<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>> myDependencyEdgeKeys = new HashSet<>();
+
+  // nodes of myNodes by FQN, rebuilt on demand after the nodes or PSI have changed
+  @Nullable private Map<String, DiagramNode<Object>> myClassNodesByFqn;
+  @Nullable private Map<String, DiagramNode<Object>> myPackageNodesByFqn;
+  private long myNodeIndexModificationCount;
 
   @Override
   @NotNull
@@ -244,6 +253,9 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     clearAndBackup(myNodes, myNodesOld);
     clearAndBackup(myEdges, myEdgesOld);
     clearAndBackup(myDependencyEdges, myDependencyEdgesOld);
+    myEdgeKeys.clear();
+    myDependencyEdgeKeys.clear();
+    invalidateNodeIndex();
   }
 
   public void removeAllElements() {
@@ -297,6 +309,7 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
         interfaces.add(psiClass);
       }
     }
+    invalidateNodeIndex();
 
     for (JSClass psiClass : classes) {
       {
@@ -387,6 +400,7 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     mergeWithBackup(myNodes, myNodesOld);
     mergeWithBackup(myEdges, myEdgesOld);
     mergeWithBackup(myDependencyEdges, myDependencyEdgesOld);
+    invalidateNodeIndex();
   }
 
   private void showDependenciesFor(final JSClass clazz, final EnumSet<FlashUmlDependenciesSettingsOption> options) {
@@ -490,25 +504,36 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   }
 
   public FlashUmlEdge addEdge(DiagramNode<Object> from, DiagramNode<Object> to, DiagramRelationshipInfo relationship) {
-    return addEdge(from, to, relationship, myEdges);
+    return addEdge(from, to, relationship, myEdges, myEdgeKeys);
   }
 
   public FlashUmlEdge addDependencyEdge(DiagramNode<Object> from, DiagramNode<Object> to, DiagramRelationshipInfo relationship) {
-    return addEdge(from, to, relationship, myDependencyEdges);
+    return addEdge(from, to, relationship, myDependencyEdges, myDependencyEdgeKeys);
   }
 
   private static FlashUmlEdge addEdge(DiagramNode<Object> from,
                                    DiagramNode<Object> to,
                                    DiagramRelationshipInfo relationship,
-                                   Collection<DiagramEdge<Object>> storage) {
-    for (DiagramEdge edge : storage) {
-      if (edge.getSource() == from && edge.getTarget() == to && relationship.equals(edge.getRelationship())) return null;
-    }
+                                   Collection<DiagramEdge<Object>> storage,
+                                   Set<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>> keys) {
+    if (!keys.add(Trinity.create(from, to, relationship))) return null;
     FlashUmlEdge result = new FlashUmlEdge(from, to, relationship);
     storage.add(result);
     return result;
   }
 
+  private static void removeEdgesOf(DiagramNode node,
+                                    Collection<DiagramEdge<Object>> storage,
+                                    Set<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>> keys) {
+    for (Iterator<DiagramEdge<Object>> iterator = storage.iterator(); iterator.hasNext(); ) {
+      final DiagramEdge<Object> edge = iterator.next();
+      if (node.equals(edge.getTarget()) || node.equals(edge.getSource())) {
+        iterator.remove();
+        keys.remove(Trinity.create(edge.getSource(), edge.getTarget(), edge.getRelationship()));
+      }
+    }
+  }
+
   private Set<JSClass> getAllClasses() {
     Set<JSClass> classes = new HashSet<>();
     for (SmartPsiElementPointer<JSClass> pointer : classesAddedByUser.values()) {
@@ -539,17 +564,43 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
 
   @Nullable
   public DiagramNode<Object> findNode(Object object) {
-    String objectFqn = getFqn(object);
-    for (DiagramNode<Object> node : getNodes()) {
+    final String objectFqn = getFqn(object);
+    if (objectFqn == null) return null;
+
+    ensureNodeIndexUpToDate();
+    assert myClassNodesByFqn != null && myPackageNodesByFqn != null;
+    if (object instanceof JSClass) return myClassNodesByFqn.get(objectFqn);
+    if (object instanceof String) return myPackageNodesByFqn.get(objectFqn);
+
+    final DiagramNode<Object> classNode = myClassNodesByFqn.get(objectFqn);
+    return classNode != null ? classNode : myPackageNodesByFqn.get(objectFqn);
+  }
+
+  private void invalidateNodeIndex() {
+    myClassNodesByFqn = null;
+    myPackageNodesByFqn = null;
+  }
+
+  private void ensureNodeIndexUpToDate() {
+    // FQNs of classes change on rename
+    final long modificationCount = getModificationTracker().getModificationCount();
+    if (myClassNodesByFqn != null && myPackageNodesByFqn != null && myNodeIndexModificationCount == modificationCount) return;
+
+    final Map<String, DiagramNode<Object>> classNodes = new HashMap<>();
+    final Map<String, DiagramNode<Object>> packageNodes = new HashMap<>();
+    for (DiagramNode<Object> node : myNodes) {
       final String fqn = getFqn(getIdentifyingElement(node));
-      if (fqn != null && fqn.equals(objectFqn)) {
-        if (object instanceof JSClass && !(node instanceof FlashUmlClassNode)) continue;
-        if (object instanceof String && !(node instanceof FlashUmlPackageNode)) continue;
-        return node;
+      if (fqn == null) continue;
+      if (node instanceof FlashUmlClassNode) {
+        classNodes.putIfAbsent(fqn, node);
+      }
+      else if (node instanceof FlashUmlPackageNode) {
+        packageNodes.putIfAbsent(fqn, node);
       }
     }
-    //final SmartPsiElementPointer<JSPackage> ptr = packages.get(UmlUtils.getPackageName(psiElement));
-    return null; //ptr == null ? null : findNode(ptr.getElement());
+    myClassNodesByFqn = classNodes;
+    myPackageNodesByFqn = packageNodes;
+    myNodeIndexModificationCount = modificationCount;
   }
 
   @Nullable
@@ -579,24 +630,11 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
       return;
     }
 
-    Collection<DiagramEdge> edgesToRemove = new ArrayList<>();
-    for (DiagramEdge edge : myEdges) {
-      if (node.equals(edge.getTarget()) || node.equals(edge.getSource())) {
-        edgesToRemove.add(edge);
-      }
-    }
-    myEdges.removeAll(edgesToRemove);
-
-    Collection<DiagramEdge> dependencyEdgesToRemove = new ArrayList<>();
-    for (DiagramEdge edge : myDependencyEdges) {
-      if (node.equals(edge.getTarget()) || node.equals(edge.getSource())) {
-        dependencyEdgesToRemove.add(edge);
-      }
-    }
-    myDependencyEdges.removeAll(dependencyEdgesToRemove);
-
+    removeEdgesOf(node, myEdges, myEdgeKeys);
+    removeEdgesOf(node, myDependencyEdges, myDependencyEdgeKeys);
 
     myNodes.remove(node);
+    invalidateNodeIndex();
     if (element instanceof JSClass) {
       final JSClass psiClass = (JSClass)element;
       classesRemovedByUser.put(psiClass.getQualifiedName(), spManager.createSmartPsiElementPointer(psiClass));